@@ -41,11 +41,11 @@ application {
 
 // Increase JVM heap size when running project
 tasks.withType<JavaExec>().configureEach {
-    jvmArgs = listOf("-Xms1G", "-Xmx20G")
+    jvmArgs = listOf("-Xms1G", "-Xmx2G")
 }
 
 // Increase JVM heap size when running tests
 tasks.test {
     minHeapSize = "1G"
-    maxHeapSize = "20G"
+    maxHeapSize = "2G"
 }
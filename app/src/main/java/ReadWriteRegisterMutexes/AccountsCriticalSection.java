@@ -0,0 +1,114 @@
+/** Account transfer critical section workload
+ */
+
+package ReadWriteRegisterMutexes;
+
+import java.util.Arrays;
+
+/** Account transfer critical section workload
+ * 
+ * Moves a random amount between two random accounts, and updates the totals
+ * of money moved out of and into accounts, so every transfer writes four
+ * fields. The transfer then checks that both totals match, which fails if
+ * another thread interleaved its transfer. The sum of all the balances never
+ * changes.
+ */
+public class AccountsCriticalSection implements CriticalSection {
+    /** Default number of accounts
+     */
+    public static final int DEFAULT_ACCOUNTS = 64;
+
+    /** Initial balance of every account
+     */
+    public static final long INITIAL_BALANCE = 1000000;
+
+    /** Balance of each account
+     */
+    private final long[] balances;
+
+    /** Random numbers of each thread
+     */
+    private final ThreadRandom random;
+
+    /** Total money moved out of and into accounts
+     */
+    private long debits;
+    private long credits;
+
+    /** Number of transfers that saw different totals
+     */
+    private long violations;
+
+    /** Constructor with the default number of accounts
+     * 
+     * @param numThreads    Number of threads running the critical section
+     */
+    public AccountsCriticalSection(int numThreads) {
+        this(numThreads, AccountsCriticalSection.DEFAULT_ACCOUNTS);
+    }
+
+    /** Constructor
+     * 
+     * @param numThreads    Number of threads running the critical section
+     * @param accounts      Number of accounts
+     */
+    public AccountsCriticalSection(int numThreads, int accounts) {
+        if (accounts < 2) {
+            throw new IllegalArgumentException(
+                "Invalid number of accounts: accounts must be >=2");
+        }
+        this.balances = new long[accounts];
+        this.random = new ThreadRandom(numThreads);
+        this.reset();
+    }
+
+    /** Transfer a random amount between two random accounts
+     * 
+     * @param tid   Thread ID
+     * @param add   Unused, all threads transfer
+     */
+    public void run(int tid, boolean add) {
+        int n = this.balances.length;
+        int r = this.random.next(tid);
+        int from = r % n;
+        int to = (from + 1 + ((r >>> 8) % (n - 1))) % n;
+        long amount = r & 0xff;
+
+        this.balances[from] -= amount;
+        this.debits += amount;
+        this.balances[to] += amount;
+        this.credits += amount;
+        if (this.debits != this.credits) {
+            this.violations++;
+            this.credits = this.debits; // Count each interleaving once
+        }
+    }
+
+    /** Reset the balances and the totals
+     */
+    public void reset() {
+        Arrays.fill(this.balances, INITIAL_BALANCE);
+        this.debits = 0;
+        this.credits = 0;
+        this.violations = 0;
+    }
+
+    /** Check that no transfer was interleaved and no money was lost
+     * 
+     * @return null if the invariants hold, or a description of the error
+     */
+    public String check() {
+        long sum = 0;
+        for (long balance : this.balances) {
+            sum += balance;
+        }
+        if (this.violations != 0) {
+            return this.violations + " interleaved transfers";
+        }
+        if (sum != INITIAL_BALANCE * this.balances.length) {
+            return "balances sum " + sum + " expected "
+                + (INITIAL_BALANCE * this.balances.length);
+        }
+        return null;
+    }
+}
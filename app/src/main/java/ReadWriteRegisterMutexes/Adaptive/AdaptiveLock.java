@@ -5,27 +5,101 @@
  * Synchronization Algorithms and Concurrent Programming textbook by Gadi
  * Taubenfeld in pages 105 to 110.
  * 
- * If the maximum number of splitters (infArrSize) is reached, a ReentrantLock
- * is acquired to ensure safety without requiring infinite memory.
+ * The algorithm needs an infinite chain of splitters. Splitters are stored in
+ * fixed-size segments that are allocated when a thread first reaches them, and
+ * segments that every thread has left behind are reset and reused at the end of
+ * the chain, so memory stays bounded by the number of threads instead of
+ * growing with the number of acquisitions.
  */
 package ReadWriteRegisterMutexes.Adaptive;
 
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+import ReadWriteRegisterMutexes.Instrumented;
+import ReadWriteRegisterMutexes.LockCounters;
+import ReadWriteRegisterMutexes.LongRegisterArray;
+import ReadWriteRegisterMutexes.MemoryOrdering;
+import ReadWriteRegisterMutexes.RegisterArray;
+import ReadWriteRegisterMutexes.RegisterLayout;
+import ReadWriteRegisterMutexes.SpinWaitStrategy;
+import ReadWriteRegisterMutexes.WaitStrategy;
 
 /** AdaptiveLock class implements a mutex lock using the Simple Adaptive
  * Algorithm
  * 
  * This mutex uses the Simple Adaptive Algorithm by M. Merritt and G. Taubenfeld.
  * 
- * If the maximum number of splitters (infArrSize) is reached, a ReentrantLock
- * is acquired to ensure safety without requiring infinite memory.
+ * Levels are mapped to segments of SEGMENT_SIZE splitters (or numThreads
+ * splitters if that is larger). A thread announces the first level it may
+ * touch (its hazard) before reading next, and the lock holder, which is the
+ * only thread that moves next, recycles the segments below both next and every
+ * announced hazard. Threads waiting for next to move do not announce a
+ * hazard, as they only read next. Segments are only allocated while the chain
+ * warms up, and while a thread that was preempted inside a splitter keeps
+ * more segments from being recycled than there are spare ones, so lock and
+ * unlock do not allocate once the spare segments cover the longest stall.
  */
-public class AdaptiveLock implements ReadWriteRegisterMutexes.Lock {
+public class AdaptiveLock implements ReadWriteRegisterMutexes.Lock,
+        Instrumented {
+    /** Minimum number of splitters per segment
+     */
+    public static final int SEGMENT_SIZE = 1024;
+
+    /** Hazard value of threads that are not trying to get the lock
+     */
+    private static final long IDLE = Long.MAX_VALUE;
+
+    /** Offsets of the x, y, z and b registers of a splitter in a segment
+     */
+    private static final int X = 0;
+    private static final int Y = 1;
+    private static final int Z = 2;
+    private static final int B = 3;
+
+    /** Handle to compare and set the link between segments
+     */
+    private static final VarHandle NEXT_SEGMENT;
+
+    static {
+        try {
+            NEXT_SEGMENT = MethodHandles.lookup().findVarHandle(
+                Segment.class, "next", Segment.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /** Segment of consecutive splitters
+     * 
+     * The x, y, z and b registers of the splitter at level base+k are stored in
+     * registers 4*k to 4*k+3, so a thread touches a single array per level.
+     */
+    private static final class Segment {
+        /** Registers of the splitters in the segment
+         */
+        final RegisterArray registers;
+
+        /** Level of the first splitter in the segment
+         * 
+         * It is written before the segment is linked into the chain.
+         */
+        long base;
+
+        /** Next segment in the chain, or null if not allocated yet
+         */
+        volatile Segment next;
+
+        Segment(int size, RegisterLayout layout, MemoryOrdering ordering) {
+            this.registers = new RegisterArray(4 * size, layout, ordering);
+        }
+    }
+
     /** Infinite array size
      * 
-     * This variable sets the real size of the arrays behind the lock
-     * implementation, because infinite arrays are not a thing in the real world.
+     * Splitters are allocated on demand and levels are longs, so this is not
+     * a limit. It is the level after which the lock emits a LevelOverflowEvent
+     * to JFR, once, when next crosses it.
      */
     private int infArrSize;
 
@@ -33,73 +107,141 @@ public class AdaptiveLock implements ReadWriteRegisterMutexes.Lock {
      */
     private int n;
 
+    /** Number of splitters per segment
+     */
+    private final int segmentSize;
+
+    /** Memory layout of the splitter registers
+     */
+    private final RegisterLayout layout;
+
     /** Next level
      * 
      * Shared variable (it might be accessed by multiple threads concurrently).
+     * It is stored as a single long register, as it grows by at least 1 on
+     * every acquisition and an int would wrap after 2^31 of them.
+     */
+    private LongRegisterArray next;
+
+    /** Segment that contains next
+     * 
+     * Shared variable written only by the lock holder. It is always updated
+     * before next, so its base is never above the value of next read after it.
      */
-    private AtomicInteger next;
+    private volatile Segment floor;
 
-    /** Array of x values for all levels
+    /** Lowest level each thread may access
      * 
-     * Shared variable (all entries might be accessed by multiple threads
-     * concurrently).
+     * Shared variable (the ith entry is written by the ith thread and read by
+     * the lock holder). IDLE when the thread is not in the entry protocol or
+     * the critical section.
      */
-    private AtomicInteger[] x;
+    private final LongRegisterArray hazard;
 
-    /** Array of y values for all levels
+    /** Oldest segment of the chain that has not been recycled
      * 
-     * Shared variable (all entries might be accessed by multiple threads
-     * concurrently).
+     * Only accessed by the lock holder.
      */
-    private AtomicBoolean[] y;
+    private Segment oldest;
 
-    /** Array of z values for all levels
+    /** Recycled segments ready to be linked at the end of the chain
      * 
-     * Shared variable (all entries might be accessed by multiple threads
-     * concurrently).
+     * Only accessed by the lock holder. Spare segments are chained through
+     * their next field.
      */
-    private AtomicBoolean[] z;
+    private Segment spare;
 
-    /** Array of b values for all levels
+    /** Segments of the current levels of the threads
      * 
-     * Shared variable (all entries might be accessed by multiple threads
-     * concurrently).
+     * Local variable (each entry is accessed only by one thread).
      */
-    private AtomicBoolean[] b;
+    private Segment[] segment;
 
     /** Current levels of the threads
      * 
      * Local variable (each entry is accessed only by one thread). The ith entry
      * contains the level for the ith thread.
      */
-    private int[] level;
+    private long[] level;
+
+    /** What waiting threads do in each busy-wait loop iteration
+     */
+    private WaitStrategy waitStrategy;
+
+    /** Memory ordering of the shared register accesses
+     */
+    private MemoryOrdering ordering;
+
+    /** Event counters of the threads
+     */
+    private final LockCounters counters;
 
     /** Constructor
      * 
      * @param numThreads    Number of threads using the lock
-     * @param maxSplitters  Maximum number of splitters after to acquire another lock
+     * @param maxSplitters  Number of levels after which the lock warns
      */
     public AdaptiveLock(int numThreads, int maxSplitters) {
-        // Initialize instance variables
+        this(numThreads, maxSplitters, RegisterLayout.PACKED);
+    }
+
+    /** Constructor
+     * 
+     * @param numThreads    Number of threads using the lock
+     * @param maxSplitters  Number of levels after which the lock warns
+     * @param layout    Memory layout of the shared registers
+     */
+    public AdaptiveLock(int numThreads, int maxSplitters, RegisterLayout layout) {
+        this(numThreads, maxSplitters, layout, new SpinWaitStrategy());
+    }
+
+    /** Constructor
+     * 
+     * @param numThreads    Number of threads using the lock
+     * @param maxSplitters  Number of levels after which the lock warns
+     * @param layout    Memory layout of the shared registers
+     * @param waitStrategy  Wait strategy of the busy-wait loops
+     */
+    public AdaptiveLock(int numThreads, int maxSplitters, RegisterLayout layout,
+            WaitStrategy waitStrategy) {
+        this(numThreads, maxSplitters, layout, waitStrategy,
+            MemoryOrdering.SEQUENTIAL);
+    }
+
+    /** Constructor
+     * 
+     * @param numThreads    Number of threads using the lock
+     * @param maxSplitters  Number of levels after which the lock warns
+     * @param layout    Memory layout of the shared registers
+     * @param waitStrategy  Wait strategy of the busy-wait loops
+     * @param ordering  Memory ordering of the shared register accesses
+     */
+    public AdaptiveLock(int numThreads, int maxSplitters, RegisterLayout layout,
+            WaitStrategy waitStrategy, MemoryOrdering ordering) {
+        // Initialize instance variables (all registers start at 0 or false)
         this.infArrSize = maxSplitters;
+        this.waitStrategy = waitStrategy;
+        this.ordering = ordering;
         this.n = numThreads;
-        this.next = new AtomicInteger(0);
-        this.x = new AtomicInteger[this.infArrSize];
-        this.y = new AtomicBoolean[this.infArrSize];
-        this.z = new AtomicBoolean[this.infArrSize];
-        this.b = new AtomicBoolean[this.infArrSize];
-        this.level = new int[this.n];
-
-        for (int i=0; i<this.infArrSize; i++) {
-            this.x[i] = new AtomicInteger(0);
-            this.y[i] = new AtomicBoolean(false);
-            this.z[i] = new AtomicBoolean(false);
-            this.b[i] = new AtomicBoolean(false);
-        }
+        this.counters = new LockCounters(this.n);
+        this.segmentSize = Math.max(SEGMENT_SIZE, numThreads);
+        this.layout = layout;
+        this.next = new LongRegisterArray(1, layout, ordering);
+        this.hazard = new LongRegisterArray(this.n, layout, ordering);
+        this.level = new long[this.n];
+        this.segment = new Segment[this.n];
 
         for (int i=0; i<this.n; i++) {
             this.level[i] = 0;
+            this.hazard.set(i, IDLE);
         }
+
+        // Start with two segments, so the first winners do not need to
+        // allocate the segment after the one they are in
+        this.floor = new Segment(this.segmentSize, layout, ordering);
+        this.floor.next = new Segment(this.segmentSize, layout, ordering);
+        this.floor.next.base = this.segmentSize;
+        this.oldest = this.floor;
     }
 
     /** Lock or critical section entry protocol method of mutex
@@ -112,6 +254,9 @@ public class AdaptiveLock implements ReadWriteRegisterMutexes.Lock {
         // This part was moved, see START comment
         boolean start = true;
         boolean win = false;  // Ensure we run the while loop at least once
+        int spins;  // Busy-wait loop iterations for the wait strategy
+        Segment seg = null;  // Segment that contains level
+        int r = 0;  // Offset of the splitter registers in the segment
 
         // repeat
         while (!win) {
@@ -125,70 +270,104 @@ public class AdaptiveLock implements ReadWriteRegisterMutexes.Lock {
             // behavior as the `goto start`.
             if (start) {
                 start = false;
-                this.level[tid] = this.next.get();
 
-                if (this.level[tid] >= (this.infArrSize - 1)) {
-                    System.out.println("T" +tid + " reached last level or higher: "
-                        + this.level[tid]);
+                // Announce the floor segment before reading next, so the
+                // lock holder does not recycle it while we walk from it
+                do {
+                    seg = this.floor;
+                    this.hazard.set(tid, seg.base);
+                } while (this.floor != seg);
+
+                this.level[tid] = this.next.load(0);
+
+                // next never goes below the floor, but do not trust a level
+                // we cannot find a segment for
+                if (this.level[tid] < seg.base) {
+                    start = true;
+                    continue;
+                }
+                while (this.level[tid] - seg.base >= this.segmentSize) {
+                    seg = this.successor(seg);
                 }
+                r = (int) (this.level[tid] - seg.base) << 2;
             }
 
             // x[level] := i
-            this.x[this.level[tid]].set(tid);
+            seg.registers.store(r + X, tid);
+            this.ordering.fullFence();  // Store-load ordering with y[level]
 
             // if y[level] then
-            if (this.y[this.level[tid]].get()) {
+            if (seg.registers.load(r + Y) == 1) {
                 // b[level] := 1
-                this.b[this.level[tid]].set(true);
+                seg.registers.store(r + B, 1);
+
+                // The wait only reads next, and start announces again, so do
+                // not keep old segments from being recycled while waiting
+                this.hazard.set(tid, IDLE);
 
                 // await level < next
-                while ( !( this.level[tid] < this.next.get() ) ) {
-                    System.out.print(""); // Do nothing
+                spins = 0;
+                while ( !( this.level[tid] < this.next.poll(0) ) ) {
+                    spins = this.waitStrategy.idle(spins);
+                    this.counters.spin(tid);
                 }
+                this.ordering.acquireFence();
 
                 // goto start
+                this.counters.restart(tid);
                 start = true;
                 continue;
             } // fi
 
             // y[level] := 1
-            this.y[this.level[tid]].set(true);
+            seg.registers.store(r + Y, 1);
+            this.ordering.fullFence();  // Store-load ordering with x[level]
 
             // if x[level] != i then
-            if (this.x[this.level[tid]].get() != tid) {
+            if (seg.registers.load(r + X) != tid) {
                 // await (b[level] = 1) or (z[level] = 1)
-                while ( !( this.b[this.level[tid]].get() ||
-                           this.z[this.level[tid]].get() ) ) {
-                    System.out.print(""); // Do nothing
+                spins = 0;
+                while ( !( (seg.registers.poll(r + B) == 1) ||
+                           (seg.registers.poll(r + Z) == 1) ) ) {
+                    spins = this.waitStrategy.idle(spins);
+                    this.counters.spin(tid);
                 }
+                this.ordering.acquireFence();
 
                 // if z[level] = 1 then
-                if (this.z[this.level[tid]].get()) {
+                if (seg.registers.load(r + Z) == 1) {
                     // Move right
+                    this.hazard.set(tid, IDLE);
+
                     // await level < next
-                    while ( !( this.level[tid] < this.next.get() ) ) {
-                        System.out.print(""); // Do nothing
+                    spins = 0;
+                    while ( !( this.level[tid] < this.next.poll(0) ) ) {
+                        spins = this.waitStrategy.idle(spins);
+                        this.counters.spin(tid);
                     }
+                    this.ordering.acquireFence();
 
                     // goto start
+                    this.counters.restart(tid);
                     start = true;
                     continue;
                 } else { // else
                     // Move down
                     // level := level + 1
                     this.level[tid] = this.level[tid] + 1;
-
-                    if (this.level[tid] >= (this.infArrSize - 1)) {
-                        System.out.println("T" +tid + " reached last level or higher: "
-                            + this.level[tid]);
+                    r += 4;
+                    if (r == this.segmentSize << 2) {
+                        seg = this.successor(seg);
+                        r = 0;
                     }
                 } // fi
             } else { // else
                 // z[level] := 1
-                this.z[this.level[tid]].set(true);
+                seg.registers.store(r + Z, 1);
+                this.ordering.fullFence();  // Store-load ordering with b[level]
 
                 // if b[level] = 0 then
-                if (!this.b[this.level[tid]].get()) {
+                if (seg.registers.load(r + B) == 0) {
                     // Win
                     // win := 1
                     win = true;
@@ -196,14 +375,18 @@ public class AdaptiveLock implements ReadWriteRegisterMutexes.Lock {
                     // Move down
                     // level := level + 1
                     this.level[tid] = this.level[tid] + 1;
-
-                    if (this.level[tid] >= (this.infArrSize - 1)) {
-                        System.out.println("T" +tid + " reached last level or higher: "
-                            + this.level[tid]);
+                    r += 4;
+                    if (r == this.segmentSize << 2) {
+                        seg = this.successor(seg);
+                        r = 0;
                     }
                 } // fi
             } // fi
         } // until win = 1
+
+        // Keep our hazard until unlock, as unlock walks from this segment
+        this.segment[tid] = seg;
+        this.counters.acquire(tid);
     }
 
     /** Unlock or critical section exit protocol method of mutex
@@ -212,12 +395,140 @@ public class AdaptiveLock implements ReadWriteRegisterMutexes.Lock {
      */
     public void unlock(int tid) {
         // Exit
-        if ((this.level[tid] + 1) >= (this.infArrSize - 1)) {
-            System.out.println("T" +tid + " set next to last level or higher: "
-                + (this.level[tid] + 1));
+        long newNext = this.level[tid] + 1;
+
+        // Find the segment of the new next and make sure the segment after it
+        // exists, since waiting threads may go down past its end
+        Segment seg = this.segment[tid];
+        this.segment[tid] = null;
+        if (newNext - seg.base >= this.segmentSize) {
+            seg = this.extend(seg);
+        }
+        if (seg.next == null) {
+            this.extend(seg);
+        }
+
+        // Move the floor to the segment of the lowest next a thread may read
+        // after this, which is the current one
+        long oldNext = this.next.load(0);
+        long target = Math.min(oldNext, newNext);
+        Segment f = this.floor;
+        Segment newFloor = f;
+        while (target - newFloor.base >= this.segmentSize) {
+            newFloor = newFloor.next;
+        }
+        if (newFloor != f) {
+            this.floor = newFloor;
+            this.recycle();
+        }
+
+        // Warn once, when next crosses the last level
+        long last = this.infArrSize - 1;
+        if ((oldNext < last) && (newNext >= last)) {
+            LevelOverflowEvent.emit(tid, newNext, this.infArrSize);
+        }
+
+        // next := level + 1 (release, so the next winner sees the writes made
+        // in the critical section)
+        this.next.store(0, newNext);
+        this.hazard.set(tid, IDLE);
+    }
+
+    /** Get the event counters of the lock
+     * 
+     * @return Counters of the lock (all 0 unless run with -DlockCounters=true)
+     */
+    public LockCounters getCounters() {
+        return this.counters;
+    }
+
+    /** Start the levels at a given level instead of 0
+     * 
+     * Only for tests of long-running locks, and only before any thread uses
+     * the lock.
+     * 
+     * @param level First value of next
+     */
+    void startAt(long level) {
+        this.next.set(0, level);
+        this.floor.base = level;
+        this.floor.next.base = level + this.segmentSize;
+    }
+
+    /** Get the segment after a segment, allocating it if needed
+     * 
+     * Used by waiting threads that went past the segments prepared by the lock
+     * holder. If several threads race to link a segment, the losers drop
+     * theirs.
+     * 
+     * @param seg   Segment in the chain
+     * @return  The segment after seg
+     */
+    private Segment successor(Segment seg) {
+        Segment s = seg.next;
+        if (s == null) {
+            s = new Segment(this.segmentSize, this.layout, this.ordering);
+            s.base = seg.base + this.segmentSize;
+            if (!NEXT_SEGMENT.compareAndSet(seg, null, s)) {
+                s = seg.next;
+            }
+        }
+        return s;
+    }
+
+    /** Get the segment after a segment, linking a spare one if needed
+     * 
+     * Only called by the lock holder.
+     * 
+     * @param seg   Segment in the chain
+     * @return  The segment after seg
+     */
+    private Segment extend(Segment seg) {
+        Segment s = seg.next;
+        if (s == null) {
+            if (this.spare == null) {
+                // Hazards may have moved since the floor last did
+                this.recycle();
+            }
+            s = this.spare;
+            if (s == null) {
+                s = new Segment(this.segmentSize, this.layout, this.ordering);
+            } else {
+                this.spare = s.next;
+                s.next = null;
+            }
+            s.base = seg.base + this.segmentSize;
+            if (!NEXT_SEGMENT.compareAndSet(seg, null, s)) {
+                // A waiting thread linked one first, keep ours for later
+                s.next = this.spare;
+                this.spare = s;
+                s = seg.next;
+            }
         }
+        return s;
+    }
 
-        // next := level + 1
-        this.next.set(this.level[tid] + 1);
+    /** Recycle the segments no thread can access anymore
+     * 
+     * Only called by the lock holder, after moving the floor. A segment can be
+     * recycled when it is below the floor and below every announced hazard.
+     */
+    private void recycle() {
+        long min = IDLE;
+        for (int i=0; i<this.n; i++) {
+            min = Math.min(min, this.hazard.get(i));
+        }
+
+        while ((this.oldest != this.floor)
+            && (this.oldest.base + this.segmentSize <= min)) {
+            Segment s = this.oldest;
+            this.oldest = s.next;
+
+            // Reset the splitters, the segment is published again when it is
+            // linked at the end of the chain
+            s.registers.clear();
+            s.next = this.spare;
+            this.spare = s;
+        }
     }
 }
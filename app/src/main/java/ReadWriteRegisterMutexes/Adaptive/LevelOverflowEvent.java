@@ -0,0 +1,48 @@
+/** JFR event for an AdaptiveLock thread that went past the last level
+ */
+
+package ReadWriteRegisterMutexes.Adaptive;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** JFR event for an AdaptiveLock thread that went past the last level
+ * 
+ * Committed once when the lock holder moves next from below maxSplitters - 1
+ * to at or above it, not on every acquisition after that.
+ */
+@Name("ReadWriteRegisterMutexes.AdaptiveLevelOverflow")
+@Label("Adaptive Level Overflow")
+@Category("Read-Write Register Mutexes")
+@Description("AdaptiveLock next level reached its maximum number of splitters")
+@StackTrace(false)
+final class LevelOverflowEvent extends Event {
+    @Label("Thread ID")
+    int tid;
+
+    @Label("Level")
+    long level;
+
+    @Label("Max Splitters")
+    int maxSplitters;
+
+    /** Commit an event if the event is enabled
+     * 
+     * @param tid           Thread ID
+     * @param level         New value of next
+     * @param maxSplitters  Maximum number of splitters of the lock
+     */
+    static void emit(int tid, long level, int maxSplitters) {
+        LevelOverflowEvent event = new LevelOverflowEvent();
+        if (event.shouldCommit()) {
+            event.tid = tid;
+            event.level = level;
+            event.maxSplitters = maxSplitters;
+            event.commit();
+        }
+    }
+}
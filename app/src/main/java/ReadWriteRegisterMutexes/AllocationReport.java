@@ -0,0 +1,137 @@
+/** Report of the memory allocated by lock and unlock
+ */
+
+package ReadWriteRegisterMutexes;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/** Report of the memory allocated by lock and unlock
+ * 
+ * Runs LockThroughputBenchmarks.throughput, where each operation is a lock and
+ * unlock pair, for every registered lock with a single thread and the JMH GC
+ * profiler, and checks that gc.alloc.rate.norm (bytes allocated per operation)
+ * is 0. Allocations in the hot path show up as GC pauses and allocation rate
+ * in every other benchmark, and hide the cost of the algorithm.
+ * 
+ * JMH itself allocates a few objects per iteration, which spread over millions
+ * of operations, so the check allows up to TOLERANCE bytes per operation,
+ * while a single object allocated per operation is at least 16 bytes.
+ * 
+ * Run with:
+ * 
+ *     ./gradlew run --args='allocation'
+ * 
+ * Any other arguments are passed to JMH, for example -wi 2 -i 5 to shorten the
+ * runs. It exits with status 1 if any lock allocates.
+ */
+public class AllocationReport {
+    /** Bytes per operation below which a lock does not allocate
+     */
+    static final double TOLERANCE = 0.01;
+
+    /** Suffix of the label of the GC profiler allocation result
+     */
+    static final String ALLOC_RATE_NORM = "gc.alloc.rate.norm";
+
+    /** Run the benchmarks, print the report and fail if any lock allocates
+     * 
+     * @param args  JMH command line options
+     */
+    public static void main(String[] args)
+            throws RunnerException, CommandLineOptionException {
+        Options parent = new CommandLineOptions(args);
+        Options options = new OptionsBuilder()
+            .parent(parent)
+            .include(LockThroughputBenchmarks.class.getSimpleName()
+                + ".throughput")
+            .threads(1)
+            .param("lockType", LockFactory.names().toArray(new String[0]))
+            .addProfiler(GCProfiler.class)
+            .build();
+        Collection<RunResult> runResults = new Runner(options).run();
+
+        // Bytes per operation by lock type, in registration order
+        Map<String, Double> bytes = new LinkedHashMap<>();
+        for (String lockType : LockFactory.names()) {
+            bytes.put(lockType, Double.NaN);
+        }
+        for (RunResult r : runResults) {
+            bytes.put(r.getParams().getParam("lockType"), allocation(r));
+        }
+
+        System.out.println(report(bytes));
+        if (!passed(bytes)) {
+            System.exit(1);
+        }
+    }
+
+    /** Get the bytes allocated per operation of a run
+     * 
+     * @param r Result of a run with the GC profiler
+     * @return Bytes per operation, or NaN if the profiler did not report them
+     */
+    static double allocation(RunResult r) {
+        // The GC profiler prefixes its labels with a middle dot in this JMH
+        // version, so match the end of the label
+        for (String label : r.getSecondaryResults().keySet()) {
+            if (label.endsWith(ALLOC_RATE_NORM)) {
+                Result<?> result = r.getSecondaryResults().get(label);
+                return result.getScore();
+            }
+        }
+        return Double.NaN;
+    }
+
+    /** Check that a lock does not allocate
+     * 
+     * @param bytes Bytes allocated per operation
+     * @return True if it was measured and is within the tolerance
+     */
+    static boolean passed(double bytes) {
+        return !Double.isNaN(bytes) && (bytes <= TOLERANCE);
+    }
+
+    /** Check that no lock allocates
+     * 
+     * @param bytes Bytes allocated per operation by lock type
+     * @return True if every lock passed
+     */
+    static boolean passed(Map<String, Double> bytes) {
+        for (double b : bytes.values()) {
+            if (!passed(b)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Build the report
+     * 
+     * @param bytes Bytes allocated per operation by lock type
+     * @return Table of the allocation and PASS/FAIL of each lock
+     */
+    static String report(Map<String, Double> bytes) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Allocation per lock/unlock (").append(ALLOC_RATE_NORM)
+            .append(", tolerance ").append(TOLERANCE).append(" B/op)\n");
+        for (Map.Entry<String, Double> e : bytes.entrySet()) {
+            double b = e.getValue();
+            sb.append(String.format("%15s %12s %s\n", e.getKey(),
+                Double.isNaN(b) ? "-" : String.format("%.4f B/op", b),
+                passed(b) ? "PASS" : "FAIL"));
+        }
+        return sb.toString();
+    }
+}
@@ -4,6 +4,7 @@
 package ReadWriteRegisterMutexes;
 
 import java.io.IOException;
+import java.util.Arrays;
 
 /** App class is the main class of the application
  * 
@@ -13,11 +14,53 @@ public class App {
 
     /** Entry point of the App class
      * 
-     * It runs benchmarks for all the implemented read-write register locks.
+     * It runs benchmarks for all the implemented read-write register locks,
+     * with the CpuTimeProfiler.
+     * With crossover, oversubscription or allocation as first argument it
+     * runs the CrossoverReport, the OversubscriptionReport or the
+     * AllocationReport instead.
      */
     public static void main(String[] args) {
 
-        // Run the benchmarks
+        // Run the crossover report
+        if ((args.length > 0) && args[0].equals("crossover")) {
+            try {
+                CrossoverReport.main(Arrays.copyOfRange(args, 1, args.length));
+            } catch (Exception e) {
+                System.out.println("ERROR: " + e);
+            }
+            return;
+        }
+
+        // Run the oversubscription report
+        if ((args.length > 0) && args[0].equals("oversubscription")) {
+            try {
+                OversubscriptionReport.main(
+                    Arrays.copyOfRange(args, 1, args.length));
+            } catch (Exception e) {
+                System.out.println("ERROR: " + e);
+            }
+            return;
+        }
+
+        // Run the allocation report
+        if ((args.length > 0) && args[0].equals("allocation")) {
+            try {
+                AllocationReport.main(Arrays.copyOfRange(args, 1, args.length));
+            } catch (Exception e) {
+                System.out.println("ERROR: " + e);
+            }
+            return;
+        }
+
+        // Run the benchmarks, with their CPU time
+        if (!Arrays.asList(args).contains(CpuTimeProfiler.class.getName())) {
+            String[] jmhArgs = new String[args.length + 2];
+            jmhArgs[0] = "-prof";
+            jmhArgs[1] = CpuTimeProfiler.class.getName();
+            System.arraycopy(args, 0, jmhArgs, 2, args.length);
+            args = jmhArgs;
+        }
         try {
             org.openjdk.jmh.Main.main(args);
         } catch (IOException e) {
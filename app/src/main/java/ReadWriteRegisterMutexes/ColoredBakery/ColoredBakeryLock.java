@@ -1,74 +1,128 @@
 package ReadWriteRegisterMutexes.ColoredBakery;
 
-import org.apache.logging.log4j.Logger;
-import org.apache.logging.log4j.LogManager;
-
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicIntegerArray;
+import ReadWriteRegisterMutexes.Instrumented;
+import ReadWriteRegisterMutexes.LockCounters;
+import ReadWriteRegisterMutexes.LongRegisterArray;
+import ReadWriteRegisterMutexes.MemoryOrdering;
+import ReadWriteRegisterMutexes.RegisterArray;
+import ReadWriteRegisterMutexes.RegisterLayout;
+import ReadWriteRegisterMutexes.SpinWaitStrategy;
+import ReadWriteRegisterMutexes.WaitStrategy;
 
 /**
  * ColoredBakeryLock is a lock implementation of the Black-White Bakery Algorithm
  *
  * This implementation is based on the pseudo-code from the Synchronization
  * Algorithms and Concurrent Programming textbook by Gadi Taubenfeld at page 56.
+ *
+ * Unlike the textbook algorithm, it is not built only from read-write
+ * registers. The active set that limits the scans to the contending processes
+ * packs 64 processes per word, and processes join and leave it with atomic
+ * read-modify-write operations (getAndBitwiseOr and getAndBitwiseAnd). The
+ * tickets and doorway flags are still registers written only by their owner,
+ * as in the textbook algorithm.
  */
 
-public class ColoredBakeryLock implements ReadWriteRegisterMutexes.Lock{
+public class ColoredBakeryLock implements ReadWriteRegisterMutexes.Lock, Instrumented {
 
     /* Ticket Colors */
     private final int WHITE = 0;
     private final int BLACK = 1;
 
-    /* Shared color bit */
-    private AtomicInteger sharedColor;
+    /* Shared color bit (single register) */
+    private RegisterArray sharedColor;
+
+    /* Flag to indicate the process in doorway (0 is false, 1 is true) */
+    private RegisterArray choosing;
 
-    /* Flag to indicate the process in doorway */
-    private AtomicBoolean choosing[];
+    /* Ticket of each process, with the color in the high 32 bits and the
+     * number in the low 32 bits, so one read gives a consistent pair. A number
+     * of 0 means the process holds no ticket. */
+    private LongRegisterArray ticket;
 
-    /* Ticket number. ticketNum[i] is the ticket for process i */
-    private AtomicInteger []ticketNum;
+    /* Processes in the doorway or holding a ticket, one bit per process.
+     * Process i is bit (i % 64) of word i / 64. Both scans of lock only visit
+     * the processes in this set, so their cost depends on the number of
+     * contending processes instead of N. Updated with atomic read-modify-write
+     * operations, as several processes write each word. */
+    private LongRegisterArray active;
 
-    /* Ticket color. ticketColor[i] is the color of process i's ticket */
-    private AtomicInteger []ticketColor;
+    /* What waiting processes do in each busy-wait loop iteration */
+    private WaitStrategy waitStrategy;
+
+    /* Memory ordering of the shared register accesses */
+    private MemoryOrdering ordering;
 
     /* Number of process*/
     private int N;
-    //private static final Logger log = LogManager.getRootLogger();
+
+    /* Spin and acquisition counters of each process */
+    private LockCounters counters;
 
     public ColoredBakeryLock(int numProcess){
+        this(numProcess, RegisterLayout.PACKED);
+    }
+
+    /* layout sets how the shared registers are placed in memory */
+    public ColoredBakeryLock(int numProcess, RegisterLayout layout){
+        this(numProcess, layout, new SpinWaitStrategy());
+    }
+
+    /* waitStrategy sets what the busy-wait loops do while waiting */
+    public ColoredBakeryLock(int numProcess, RegisterLayout layout, WaitStrategy waitStrategy){
+        this(numProcess, layout, waitStrategy, MemoryOrdering.SEQUENTIAL);
+    }
+
+    /* ordering sets the memory ordering of the shared register accesses */
+    public ColoredBakeryLock(int numProcess, RegisterLayout layout, WaitStrategy waitStrategy,
+                             MemoryOrdering ordering){
         N = numProcess;
-        this.sharedColor = new AtomicInteger(this.WHITE);
-        this.choosing = new AtomicBoolean[N];
-        this.ticketNum = new AtomicInteger[N];
-        this.ticketColor = new AtomicInteger[N];
-        for (int i = 0; i < N; i++) {
-            this.choosing[i] = new AtomicBoolean(false);
-            this.ticketNum[i] = new AtomicInteger(0);
-            this.ticketColor[i] = new AtomicInteger(this.WHITE);
-        }
+        this.waitStrategy = waitStrategy;
+        this.ordering = ordering;
+        // All registers start at 0, which is false, ticket 0 and WHITE
+        this.sharedColor = new RegisterArray(1, layout, ordering);
+        this.choosing = new RegisterArray(N, layout, ordering);
+        this.ticket = new LongRegisterArray(N, layout, ordering);
+        this.active = new LongRegisterArray((N + 63) >>> 6, layout, ordering);
+        this.counters = new LockCounters(N);
     }
 
     @Override
     public void lock(int pid) {
-        //log.debug("Enter lock, PID : " + pid);
         //Step 1
         //Begin of Doorway
         int i = pid;
-        choosing[i].set(true);
-        //ticketColor[i].set(sharedColor.get());
-        ticketColor[i].getAndSet(sharedColor.get());
-
-        for (int j = 0; j < N; j++) {
-            if(ticketColor[j].get() == ticketColor[i].get() && ticketNum[j].get() > ticketNum[i].get()){
-                ticketNum[i].set(ticketNum[j].get());
-                //log.debug("Found the largest ticket : " + ticketNum[j].get());
+        // Join the active set before anything else, so any process that reads
+        // the set after our doorway started sees us (volatile read-modify-write)
+        active.getAndBitwiseOr(i >>> 6, 1L << i);
+        choosing.store(i, 1);
+        // choosing[i] must be visible before we read the color (store-load),
+        // or we could take a stale color that a process which saw us out of
+        // the doorway no longer waits for
+        ordering.fullFence();
+        int myColor = sharedColor.load(0);
+        // choosing[i] must be visible before we read the other tickets (store-load)
+        ordering.fullFence();
+
+        // Processes that are not in the active set hold no ticket
+        int myNum = 0;
+        for (int w = 0; w < active.length(); w++) {
+            long bits = active.load(w);
+            while (bits != 0) {
+                int j = (w << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                long t = ticket.load(j);
+                if (color(t) == myColor && number(t) > myNum) {
+                    myNum = number(t);
+                }
             }
         }
-        int myTicket = ticketNum[i].incrementAndGet();
-        ////log.debug("My ticket ticket : " + myTicket);
-        //System.out.println("My ticket ticket : " + myTicket);
-        choosing[i].set(false);
+        // Only process i writes ticket[i], so this does not need to be atomic
+        myNum++;
+        ticket.store(i, pack(myColor, myNum));
+        choosing.store(i, 0);
+        // Our ticket must be visible before we read the other registers (store-load)
+        ordering.fullFence();
         //End of Doorway
 
         //Step 2
@@ -79,45 +133,88 @@ public class ColoredBakeryLock implements ReadWriteRegisterMutexes.Lock{
         *  - If tickets of two processes have the same color and the same number then the process with smaller identifier (process id) is smaller
         * */
 
-        for (int j = 0; j < N; j++) {
-            while(choosing[j].get()){
-                //log.warn("Waiting for process " + j + " finish choosing and move out of doorway ");
-                ; //Wait for process finish choosing and move out of doorway
-            }
-            if(ticketColor[j].get() == ticketColor[i].get()){
-                while((ticketNum[j].get() != 0) && (ticketColor[j].get() == ticketColor[i].get()) &&
-                        ((ticketNum[j].get() < ticketNum[i].get()) || ((ticketNum[j].get() == ticketNum[i].get()) && j < i))){
-                    ;
-                    //log.warn("PID : " + pid + " waiting at while loop 1");
-                    //System.out.print("PID : " + pid + " waiting at while loop 1  ");
-                }
-            }else {
-                while ((ticketNum[j].get() != 0) && (ticketColor[i].get() == sharedColor.get()) && (ticketColor[j].get() != ticketColor[i].get())) {
-                    ;
-                    //log.warn("PID : " + pid + " waiting at while loop 2");
-                    //System.out.print("PID : " + pid + " waiting at while loop 2  ");
-                }
+        // A process that joins the active set after we read it starts its
+        // doorway after ours ended, so it will not get ahead of us
+        for (int w = 0; w < active.length(); w++) {
+            long bits = active.load(w);
+            while (bits != 0) {
+                int j = (w << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                awaitProcess(i, myColor, myNum, j);
             }
         }
-        //log.debug("Exit lock, PID : " + pid);
+        counters.acquire(i);
     }
 
     @Override
     public void unlock(int pid) {
-        //log.debug("Enter unlock, PID : " + pid);
-        if(ticketColor[pid].get() == BLACK){
-            int oldColor = sharedColor.get();
-            if(!sharedColor.compareAndSet(oldColor, WHITE)){
+        if(color(ticket.load(pid)) == BLACK){
+            int oldColor = sharedColor.get(0);
+            if(!sharedColor.compareAndSet(0, oldColor, WHITE)){
                 System.out.println("compareAndSet is false for WHITE");
             }
         }else{
-            int oldColor = sharedColor.get();
-            if(!sharedColor.compareAndSet(oldColor, BLACK)){
+            int oldColor = sharedColor.get(0);
+            if(!sharedColor.compareAndSet(0, oldColor, BLACK)){
                 System.out.println("compareAndSet is false for BLACK");
             }
         }
-        ticketNum[pid].getAndSet(0);
-        //log.debug("Exit unlock, PID : " + pid);
+        // Release, so the next process sees the writes made in the critical section
+        ticket.store(pid, 0);
+        // Leave the active set once our ticket is gone
+        active.getAndBitwiseAnd(pid >>> 6, ~(1L << pid));
     }
-}
 
+    /* Wait until process j does not go before process i, which holds ticket
+     * (myColor, myNum). Each check works on one read of j's ticket. */
+    private void awaitProcess(int i, int myColor, int myNum, int j) {
+        int spins = 0;
+        while(choosing.poll(j) == 1){
+            spins = waitStrategy.idle(spins); //Wait for process finish choosing and move out of doorway
+            counters.spin(i);
+        }
+        // Read j's ticket only after seeing it out of the doorway
+        ordering.acquireFence();
+        long t = ticket.load(j);
+        if(color(t) == myColor){
+            while((number(t) != 0) && (color(t) == myColor) &&
+                    ((number(t) < myNum) || ((number(t) == myNum) && j < i))){
+                spins = waitStrategy.idle(spins);
+                counters.spin(i);
+                t = ticket.poll(j);
+            }
+        }else {
+            while ((number(t) != 0) && (myColor == sharedColor.poll(0)) && (color(t) != myColor)) {
+                spins = waitStrategy.idle(spins);
+                counters.spin(i);
+                t = ticket.poll(j);
+            }
+        }
+        ordering.acquireFence();
+    }
+
+    @Override
+    public LockCounters getCounters() {
+        return counters;
+    }
+
+    /* Current shared color, WHITE or BLACK, for tests */
+    int color() {
+        return sharedColor.load(0);
+    }
+
+    /* Pack a ticket color and number in one register */
+    private static long pack(int color, int number) {
+        return ((long) color << 32) | (number & 0xFFFFFFFFL);
+    }
+
+    /* Color of a packed ticket */
+    private static int color(long ticket) {
+        return (int) (ticket >>> 32);
+    }
+
+    /* Number of a packed ticket */
+    private static int number(long ticket) {
+        return (int) ticket;
+    }
+}
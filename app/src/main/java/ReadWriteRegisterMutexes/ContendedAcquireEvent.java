@@ -0,0 +1,38 @@
+/** JFR event for a lock acquisition that waited
+ */
+
+package ReadWriteRegisterMutexes;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/** JFR event for a lock acquisition that waited
+ * 
+ * Committed by JfrLock when a thread waited in lock for at least the contended
+ * threshold of the lock.
+ */
+@Name("ReadWriteRegisterMutexes.ContendedAcquire")
+@Label("Contended Acquire")
+@Category("Read-Write Register Mutexes")
+@Description("Lock acquisition that waited longer than the threshold")
+@StackTrace(false)
+public final class ContendedAcquireEvent extends Event {
+    @Label("Lock")
+    String lock;
+
+    @Label("Thread ID")
+    int tid;
+
+    @Label("Spins")
+    @Description("Busy-wait iterations (0 unless run with -DlockCounters=true)")
+    long spins;
+
+    @Label("Wait Duration")
+    @Timespan(Timespan.NANOSECONDS)
+    long waitDuration;
+}
@@ -0,0 +1,234 @@
+/** JMH profiler that reports the CPU time of the benchmarks
+ */
+
+package ReadWriteRegisterMutexes;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.profile.InternalProfiler;
+import org.openjdk.jmh.results.AggregationPolicy;
+import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.IterationResultMetaData;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.ScalarResult;
+
+/** JMH profiler that reports the CPU time of the benchmarks
+ * 
+ * Wall-clock results do not show the cores that waiting threads burn, which
+ * is what matters when threads outnumber cores. This profiler reads the CPU
+ * time of the benchmark JVM and of its threads before and after every
+ * iteration, and adds these secondary results:
+ * 
+ * - cpu.time: CPU time of the iteration, in milliseconds
+ * - cpu.utilization: CPU time per wall-clock time, in cores. Only one thread
+ *   can hold the lock at a time, so this is also the CPU time spent per unit
+ *   of critical section time, and everything above 1 was spent waiting.
+ * - cpu.time.norm: CPU time per benchmark operation, in nanoseconds
+ * - cpu.acquisition: CPU time per successful lock acquisition, in
+ *   nanoseconds, which compares locks on the cost of the work they let
+ *   through
+ * - cpu.thread.NAME: CPU time of each benchmark thread, in milliseconds
+ * 
+ * Benchmarks whose operations are not single acquisitions report their
+ * acquisitions with addAcquisitions, and threads other than the JMH workers
+ * report their CPU time with addThreadCpuTime.
+ * 
+ * App enables it for every benchmark, and it can be enabled in other runs
+ * with -prof ReadWriteRegisterMutexes.CpuTimeProfiler.
+ */
+public class CpuTimeProfiler implements InternalProfiler {
+    /** Acquisitions reported by the benchmark in this iteration
+     */
+    private static final AtomicLong ACQUISITIONS = new AtomicLong();
+
+    /** CPU time reported by the threads that terminated in this iteration, in
+     *  nanoseconds by thread name
+     */
+    private static final Map<String, Long> THREAD_CPU
+        = new ConcurrentHashMap<>();
+
+    /** Operating system bean of the JVM, or null if it cannot read the
+     *  process CPU time
+     */
+    private final com.sun.management.OperatingSystemMXBean os;
+
+    /** Thread bean of the JVM, or null if it cannot read thread CPU times
+     */
+    private final ThreadMXBean threads;
+
+    /** Process CPU time at the start of the iteration, in nanoseconds
+     */
+    private long startCpu;
+
+    /** Wall-clock time at the start of the iteration, in nanoseconds
+     */
+    private long startWall;
+
+    /** CPU time of each live thread at the start of the iteration, in
+     *  nanoseconds by thread ID
+     */
+    private Map<Long, Long> startThreadCpu = new HashMap<>();
+
+    /** Constructor
+     */
+    public CpuTimeProfiler() {
+        java.lang.management.OperatingSystemMXBean bean
+            = ManagementFactory.getOperatingSystemMXBean();
+        this.os = (bean instanceof com.sun.management.OperatingSystemMXBean)
+            ? (com.sun.management.OperatingSystemMXBean) bean : null;
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        this.threads = threadBean.isThreadCpuTimeSupported() ? threadBean
+            : null;
+    }
+
+    /** Report acquisitions made in this iteration
+     * 
+     * Without reports, every benchmark operation counts as one acquisition.
+     * 
+     * @param acquisitions  Number of successful lock acquisitions
+     */
+    public static void addAcquisitions(long acquisitions) {
+        ACQUISITIONS.addAndGet(acquisitions);
+    }
+
+    /** Report CPU time of the calling thread
+     * 
+     * For threads that the profiler does not see at the end of the iteration,
+     * like the workers of IncrementBenchmark, which report the CPU time of
+     * each run.
+     * 
+     * @param nanos CPU time in nanoseconds
+     */
+    public static void addThreadCpuTime(long nanos) {
+        THREAD_CPU.merge(Thread.currentThread().getName(), nanos, Long::sum);
+    }
+
+    /** Get the CPU time of the calling thread
+     * 
+     * @return CPU time in nanoseconds, or 0 if it is not available
+     */
+    public static long currentThreadCpuTime() {
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        return threadBean.isThreadCpuTimeSupported()
+            ? threadBean.getCurrentThreadCpuTime() : 0;
+    }
+
+    /** Description of the profiler
+     */
+    @Override
+    public String getDescription() {
+        return "CPU time of the benchmark JVM and its threads";
+    }
+
+    /** Read the CPU time at the start of an iteration
+     */
+    @Override
+    public void beforeIteration(BenchmarkParams benchmarkParams,
+            IterationParams iterationParams) {
+        ACQUISITIONS.set(0);
+        THREAD_CPU.clear();
+        this.startThreadCpu = this.threadCpuTimes();
+        this.startCpu = this.processCpuTime();
+        this.startWall = System.nanoTime();
+    }
+
+    /** Read the CPU time at the end of an iteration and report it
+     */
+    @Override
+    public Collection<? extends Result<?>> afterIteration(
+            BenchmarkParams benchmarkParams, IterationParams iterationParams,
+            IterationResult result) {
+        long cpu = this.processCpuTime() - this.startCpu;
+        long wall = System.nanoTime() - this.startWall;
+        List<Result<?>> results = new ArrayList<>();
+        if ((this.startCpu < 0) || (wall <= 0)) {
+            return results;
+        }
+
+        results.add(new ScalarResult("cpu.time", cpu / 1e6, "ms",
+            AggregationPolicy.AVG));
+        results.add(new ScalarResult("cpu.utilization", (double) cpu / wall,
+            "cores", AggregationPolicy.AVG));
+        IterationResultMetaData metadata = result.getMetadata();
+        long ops = (metadata == null) ? 0 : metadata.getAllOps();
+        if (ops > 0) {
+            results.add(new ScalarResult("cpu.time.norm", (double) cpu / ops,
+                "ns/op", AggregationPolicy.AVG));
+        }
+        long acquisitions = (ACQUISITIONS.get() > 0) ? ACQUISITIONS.get()
+            : ops;
+        if (acquisitions > 0) {
+            results.add(new ScalarResult("cpu.acquisition",
+                (double) cpu / acquisitions, "ns", AggregationPolicy.AVG));
+        }
+
+        for (Map.Entry<String, Long> e : this.benchmarkThreadCpu().entrySet()) {
+            results.add(new ScalarResult("cpu.thread." + e.getKey(),
+                e.getValue() / 1e6, "ms", AggregationPolicy.AVG));
+        }
+        return results;
+    }
+
+    /** Get the CPU time of the JVM
+     * 
+     * @return CPU time of all the threads of the JVM in nanoseconds, or -1 if
+     *         it is not available
+     */
+    private long processCpuTime() {
+        return (this.os == null) ? -1 : this.os.getProcessCpuTime();
+    }
+
+    /** Get the CPU time of the live threads
+     * 
+     * @return CPU time in nanoseconds by thread ID
+     */
+    private Map<Long, Long> threadCpuTimes() {
+        Map<Long, Long> times = new HashMap<>();
+        if (this.threads != null) {
+            for (long id : this.threads.getAllThreadIds()) {
+                long time = this.threads.getThreadCpuTime(id);
+                if (time >= 0) {
+                    times.put(id, time);
+                }
+            }
+        }
+        return times;
+    }
+
+    /** Get the CPU time of the benchmark threads in this iteration
+     * 
+     * The JMH worker threads that are still alive, and the threads that
+     * reported their CPU time.
+     * 
+     * @return CPU time in nanoseconds by short thread name
+     */
+    private Map<String, Long> benchmarkThreadCpu() {
+        Map<String, Long> times = new TreeMap<>(THREAD_CPU);
+        if (this.threads == null) {
+            return times;
+        }
+        for (Map.Entry<Long, Long> e : this.threadCpuTimes().entrySet()) {
+            ThreadInfo info = this.threads.getThreadInfo(e.getKey());
+            if ((info == null) || !info.getThreadName().contains("jmh-worker")) {
+                continue;
+            }
+            String name = info.getThreadName();
+            name = name.substring(name.indexOf("jmh-worker") + 4);
+            long start = this.startThreadCpu.getOrDefault(e.getKey(), 0L);
+            times.merge(name, e.getValue() - start, Long::sum);
+        }
+        return times;
+    }
+}
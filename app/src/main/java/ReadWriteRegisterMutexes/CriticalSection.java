@@ -0,0 +1,35 @@
+/** Critical section workload interface for the benchmarks
+ */
+
+package ReadWriteRegisterMutexes;
+
+/** Critical section workload interface for the benchmarks
+ * 
+ * A critical section updates data shared by all the worker threads, and is
+ * only run while holding the lock, so it does not synchronize itself. The
+ * workloads touch different amounts and shapes of data, to benchmark the
+ * locks guarding more than a single counter.
+ * 
+ * Each workload keeps invariants that only hold if the lock provides mutual
+ * exclusion, and check reports the ones that were broken.
+ */
+public interface CriticalSection {
+    /** Run the critical section once, while holding the lock
+     * 
+     * @param tid   Thread ID
+     * @param add   True for threads that add (even threads), False for threads
+     *              that subtract (odd threads)
+     */
+    public void run(int tid, boolean add);
+
+    /** Reset the shared data, before a run
+     */
+    public void reset();
+
+    /** Check the invariants of the shared data, after a run
+     * 
+     * @return null if all the invariants hold, or a description of the first
+     *         one that was broken
+     */
+    public String check();
+}
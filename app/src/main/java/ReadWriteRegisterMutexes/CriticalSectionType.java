@@ -0,0 +1,38 @@
+/** Types of critical section workloads available for the benchmarks
+ */
+
+package ReadWriteRegisterMutexes;
+
+/** Types of critical section workloads available for the benchmarks
+ * 
+ * Used to pick a workload by name, e.g. in benchmark parameters.
+ */
+public enum CriticalSectionType {
+    COUNTER,        // Increment/decrement of the Worker shared counter
+    ACCOUNTS,       // AccountsCriticalSection
+    HASH_MAP,       // HashMapCriticalSection
+    RING_BUFFER,    // RingBufferCriticalSection
+    STRIDE;         // StrideCriticalSection
+
+    /** Create a new critical section of this type
+     * 
+     * @param numThreads    Number of threads running the critical section
+     * @return New critical section, or null for COUNTER, which the workers run
+     *         themselves
+     */
+    public CriticalSection newCriticalSection(int numThreads) {
+        switch (this) {
+            case ACCOUNTS:
+                return new AccountsCriticalSection(numThreads);
+            case HASH_MAP:
+                return new HashMapCriticalSection(numThreads);
+            case RING_BUFFER:
+                return new RingBufferCriticalSection();
+            case STRIDE:
+                return new StrideCriticalSection();
+            case COUNTER:
+            default:
+                return null;
+        }
+    }
+}
@@ -0,0 +1,210 @@
+/** Report of the workloads where each lock beats ReentrantLock
+ */
+
+package ReadWriteRegisterMutexes;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/** Report of the workloads where each lock beats ReentrantLock
+ * 
+ * Runs LockThroughputBenchmarks.throughput for every lock over a matrix of
+ * critical section work (csTokens) and think time (thinkTokens) at low,
+ * medium and high contention, and prints the throughput of each lock relative
+ * to ReentrantLock. For each lock, contention and critical section it also
+ * prints the crossover: the think time from which the lock beats
+ * ReentrantLock.
+ * 
+ * Run with:
+ * 
+ *     ./gradlew run --args='crossover'
+ * 
+ * Any other arguments are passed to JMH, for example -wi 2 -i 5 to shorten the
+ * runs.
+ */
+public class CrossoverReport {
+    /** Lock types compared with ReentrantLock
+     */
+    static final String[] LOCK_TYPES = {"TOURNAMENT", "COLORED_BAKERY",
+        "ONE_BIT", "ADAPTIVE", "FAST_PATH"};
+
+    /** Lock type all the others are compared with
+     */
+    static final String BASELINE = "REENTRANT";
+
+    /** Critical section work, in Blackhole.consumeCPU tokens
+     */
+    static final String[] CS_TOKENS = {"0", "10", "100", "1000"};
+
+    /** Think time between acquisitions, in Blackhole.consumeCPU tokens
+     */
+    static final String[] THINK_TOKENS = {"0", "100", "1000", "10000"};
+
+    /** Contention levels, by number of threads
+     */
+    public enum Contention {
+        LOW(2),
+        MEDIUM(4),
+        HIGH(8);
+
+        /** Number of threads using the lock
+         */
+        private final int threads;
+
+        Contention(int threads) {
+            this.threads = threads;
+        }
+
+        /** Get the number of threads
+         * 
+         * @return Number of threads using the lock
+         */
+        public int getThreads() {
+            return this.threads;
+        }
+    }
+
+    /** Run the matrix and print the report
+     * 
+     * @param args  JMH command line options
+     */
+    public static void main(String[] args)
+            throws RunnerException, CommandLineOptionException {
+        Options parent = new CommandLineOptions(args);
+        String[] lockTypes = new String[LOCK_TYPES.length + 1];
+        lockTypes[0] = BASELINE;
+        System.arraycopy(LOCK_TYPES, 0, lockTypes, 1, LOCK_TYPES.length);
+
+        // Throughput by key(contention, lock, cs, think)
+        Map<String, Double> scores = new HashMap<>();
+        for (Contention contention : Contention.values()) {
+            Options options = new OptionsBuilder()
+                .parent(parent)
+                .include(LockThroughputBenchmarks.class.getSimpleName()
+                    + ".throughput")
+                .threads(contention.getThreads())
+                .param("lockType", lockTypes)
+                .param("csTokens", CS_TOKENS)
+                .param("thinkTokens", THINK_TOKENS)
+                .addProfiler(CpuTimeProfiler.class)
+                .build();
+            Collection<RunResult> results = new Runner(options).run();
+            for (RunResult r : results) {
+                scores.put(key(contention,
+                    r.getParams().getParam("lockType"),
+                    r.getParams().getParam("csTokens"),
+                    r.getParams().getParam("thinkTokens")),
+                    r.getPrimaryResult().getScore());
+            }
+        }
+
+        System.out.println(report(scores));
+    }
+
+    /** Build the report
+     * 
+     * @param scores    Throughput by key(contention, lock, cs, think)
+     * @return Tables of throughput relative to ReentrantLock, and crossovers
+     */
+    static String report(Map<String, Double> scores) {
+        StringBuilder sb = new StringBuilder();
+
+        sb.append("Throughput relative to ").append(BASELINE)
+            .append(" (* where the lock is faster)\n");
+        for (Contention contention : Contention.values()) {
+            sb.append('\n').append(contention).append(" contention (")
+                .append(contention.getThreads()).append(" threads)\n");
+            sb.append(String.format("%8s %8s", "cs", "think"));
+            for (String lockType : LOCK_TYPES) {
+                sb.append(String.format(" %15s", lockType));
+            }
+            sb.append('\n');
+            for (String cs : CS_TOKENS) {
+                for (String think : THINK_TOKENS) {
+                    sb.append(String.format("%8s %8s", cs, think));
+                    for (String lockType : LOCK_TYPES) {
+                        double ratio = ratio(scores, contention, lockType, cs,
+                            think);
+                        sb.append(Double.isNaN(ratio)
+                            ? String.format(" %15s", "-")
+                            : String.format(" %14.2f%s", ratio,
+                                (ratio > 1.0) ? "*" : " "));
+                    }
+                    sb.append('\n');
+                }
+            }
+        }
+
+        sb.append("\nCrossovers (think time from which the lock beats ")
+            .append(BASELINE).append(")\n");
+        for (String lockType : LOCK_TYPES) {
+            for (Contention contention : Contention.values()) {
+                for (String cs : CS_TOKENS) {
+                    double[] ratios = new double[THINK_TOKENS.length];
+                    for (int i=0; i<THINK_TOKENS.length; i++) {
+                        ratios[i] = ratio(scores, contention, lockType, cs,
+                            THINK_TOKENS[i]);
+                    }
+                    int i = crossover(ratios);
+                    sb.append(String.format("%15s %6s cs=%-5s ", lockType,
+                        contention, cs));
+                    if (i < 0) {
+                        sb.append("never\n");
+                    } else if (i == 0) {
+                        sb.append("always\n");
+                    } else {
+                        sb.append("think>=").append(THINK_TOKENS[i])
+                            .append('\n');
+                    }
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    /** Find the crossover of a lock
+     * 
+     * @param ratios    Throughput relative to the baseline, by increasing
+     *                  think time
+     * @return Index of the first think time from which the lock beats the
+     *         baseline at every larger think time, or -1 if it does not beat
+     *         it at the largest one (or it was not measured)
+     */
+    static int crossover(double[] ratios) {
+        int i = ratios.length;
+        while ((i > 0) && (ratios[i - 1] > 1.0)) {
+            i--;
+        }
+        return (i == ratios.length) ? -1 : i;
+    }
+
+    /** Throughput of a lock relative to the baseline
+     * 
+     * @return Ratio, or NaN if either was not measured
+     */
+    private static double ratio(Map<String, Double> scores,
+            Contention contention, String lockType, String cs, String think) {
+        Double score = scores.get(key(contention, lockType, cs, think));
+        Double base = scores.get(key(contention, BASELINE, cs, think));
+        if ((score == null) || (base == null) || (base == 0.0)) {
+            return Double.NaN;
+        }
+        return score / base;
+    }
+
+    /** Key of a score
+     */
+    static String key(Contention contention, String lockType, String cs,
+            String think) {
+        return contention + "/" + lockType + "/" + cs + "/" + think;
+    }
+}
@@ -0,0 +1,104 @@
+/** Fairness metrics of the acquisitions of a lock
+ */
+
+package ReadWriteRegisterMutexes;
+
+/** Fairness metrics of the acquisitions of a lock
+ * 
+ * Computed from the number of acquisitions each thread made in the same
+ * amount of time, so they measure how evenly the lock shares its throughput:
+ * 
+ * - Jain's fairness index, (sum x)^2 / (n * sum x^2), which is 1 when all the
+ *   threads acquired the lock the same number of times, and 1/n when a single
+ *   thread got all the acquisitions.
+ * - The min/max ratio of the acquisitions of the slowest and fastest threads,
+ *   which is 0 when some thread starved.
+ * 
+ * The report also lists the starved threads, which did not acquire the lock at
+ * all, since the metrics only tell that there is at least one.
+ */
+public final class Fairness {
+
+    private Fairness() {
+    }
+
+    /** Jain's fairness index
+     * 
+     * @param acquisitions  Acquisitions of each thread
+     * @return Index between 1/n and 1, or 1 if there were no acquisitions
+     */
+    public static double jainIndex(long[] acquisitions) {
+        double sum = 0;
+        double sumSquares = 0;
+        for (long a : acquisitions) {
+            sum += a;
+            sumSquares += (double) a * a;
+        }
+        if (sumSquares == 0) {
+            return 1.0;
+        }
+        return (sum * sum) / (acquisitions.length * sumSquares);
+    }
+
+    /** Ratio of the minimum and maximum acquisitions of any thread
+     * 
+     * @param acquisitions  Acquisitions of each thread
+     * @return Ratio between 0 and 1, or 1 if there were no acquisitions
+     */
+    public static double minMaxRatio(long[] acquisitions) {
+        long min = Long.MAX_VALUE;
+        long max = 0;
+        for (long a : acquisitions) {
+            min = Math.min(min, a);
+            max = Math.max(max, a);
+        }
+        if (max == 0) {
+            return 1.0;
+        }
+        return (double) min / max;
+    }
+
+    /** Report of the fairness of a lock
+     * 
+     * @param name          Name of the lock
+     * @param acquisitions  Acquisitions of each thread
+     * @param maxGaps       Maximum time of each thread without acquiring the
+     *                      lock, from the start of the measurement or an
+     *                      acquisition to the next acquisition or the end of
+     *                      the measurement, in nanoseconds
+     * @return Multi-line report with the metrics and each thread's progress
+     */
+    public static String report(String name, long[] acquisitions,
+            long[] maxGaps) {
+        long maxGap = 0;
+        for (long g : maxGaps) {
+            maxGap = Math.max(maxGap, g);
+        }
+        StringBuilder starved = new StringBuilder();
+        for (int tid=0; tid<acquisitions.length; tid++) {
+            if (acquisitions[tid] == 0) {
+                starved.append((starved.length() == 0) ? "T" : ",T")
+                    .append(tid);
+            }
+        }
+
+        StringBuilder report = new StringBuilder();
+        report.append(name).append(": jain=")
+            .append(String.format("%.4f", jainIndex(acquisitions)))
+            .append(" min/max=")
+            .append(String.format("%.4f", minMaxRatio(acquisitions)))
+            .append(" maxGap=").append(maxGap).append(" ns");
+        if (starved.length() > 0) {
+            report.append(" starved=").append(starved);
+        }
+        for (int tid=0; tid<acquisitions.length; tid++) {
+            report.append(System.lineSeparator()).append("  T").append(tid)
+                .append(": acquisitions=").append(acquisitions[tid])
+                .append(" maxGap=").append(maxGaps[tid]).append(" ns");
+            if (acquisitions[tid] == 0) {
+                report.append(" STARVED");
+            }
+        }
+        return report.toString();
+    }
+}
@@ -0,0 +1,288 @@
+/** FastPathLock is a mutex lock implementation of Lamport's Fast Mutual
+ * Exclusion Algorithm with a fallback lock
+ * 
+ * This implementation is based on the algorithm description from L. Lamport,
+ * A Fast Mutual Exclusion Algorithm, ACM Transactions on Computer Systems 5(1),
+ * 1987, and from the Synchronization Algorithms and Concurrent Programming
+ * textbook by Gadi Taubenfeld.
+ */
+package ReadWriteRegisterMutexes.FastPath;
+
+import ReadWriteRegisterMutexes.Instrumented;
+import ReadWriteRegisterMutexes.Lock;
+import ReadWriteRegisterMutexes.LockCounters;
+import ReadWriteRegisterMutexes.MemoryOrdering;
+import ReadWriteRegisterMutexes.RegisterArray;
+import ReadWriteRegisterMutexes.RegisterLayout;
+import ReadWriteRegisterMutexes.SpinWaitStrategy;
+import ReadWriteRegisterMutexes.WaitStrategy;
+import ReadWriteRegisterMutexes.Tournament.TournamentLock;
+
+/** FastPathLock class implements a mutex lock using Lamport's Fast Mutual
+ * Exclusion Algorithm
+ * 
+ * Without contention a thread enters the critical section with a constant
+ * number of register accesses (3 writes and 2 reads, whatever the number of
+ * threads) and leaves it with 2 writes. When a thread detects contention (the
+ * y register is taken, or another thread wrote x after it), it follows the
+ * slow path of the algorithm, which waits on all the b registers, and which
+ * Lamport's algorithm lets starve.
+ * 
+ * Here the threads that detect contention first acquire a fallback lock, an
+ * N-process lock passed to the constructor, and then run the algorithm again
+ * while holding it. Mutual exclusion still comes from the fast algorithm, as
+ * every thread enters through it, but only the holder of the fallback lock
+ * waits in it, so the waiting threads queue in the fallback lock, with its
+ * fairness, instead of all spinning on the same registers.
+ */
+public class FastPathLock implements Lock, Instrumented {
+    /** Value of y when no thread has it
+     */
+    private static final int FREE = 0;
+
+    /** Registers of the fast algorithm
+     */
+    private static final int X = 0;
+    private static final int Y = 1;
+
+    /** Number of threads
+     */
+    private final int n;
+
+    /** Shared x and y registers
+     * 
+     * x contains the ID of the last thread that started the entry protocol,
+     * and y contains FREE or the ID + 1 of a thread that got past x.
+     */
+    private final RegisterArray xy;
+
+    /** Shared variable that indicates if a thread is in the entry protocol or
+     *  in the critical section of the fast algorithm
+     * 
+     * The ith entry is written by the ith thread. Entries are 0 (false) or 1
+     * (true).
+     */
+    private final RegisterArray b;
+
+    /** Lock held by the threads that detected contention
+     */
+    private final Lock fallback;
+
+    /** Whether each thread holds the fallback lock
+     * 
+     * Local variable (each entry is accessed only by one thread).
+     */
+    private final boolean[] slow;
+
+    /** What waiting threads do in each busy-wait loop iteration
+     */
+    private final WaitStrategy waitStrategy;
+
+    /** Memory ordering of the shared register accesses
+     */
+    private final MemoryOrdering ordering;
+
+    /** Event counters of the threads
+     */
+    private final LockCounters counters;
+
+    /** Constructor
+     * 
+     * @param numThreads    Number of threads using the lock
+     */
+    public FastPathLock(int numThreads) {
+        this(numThreads, RegisterLayout.PACKED);
+    }
+
+    /** Constructor
+     * 
+     * @param numThreads    Number of threads using the lock
+     * @param layout    Memory layout of the shared registers
+     */
+    public FastPathLock(int numThreads, RegisterLayout layout) {
+        this(numThreads, layout, new SpinWaitStrategy());
+    }
+
+    /** Constructor
+     * 
+     * @param numThreads    Number of threads using the lock
+     * @param layout    Memory layout of the shared registers
+     * @param waitStrategy  Wait strategy of the busy-wait loops
+     */
+    public FastPathLock(int numThreads, RegisterLayout layout,
+            WaitStrategy waitStrategy) {
+        this(numThreads, layout, waitStrategy, MemoryOrdering.SEQUENTIAL);
+    }
+
+    /** Constructor with a TournamentLock fallback
+     * 
+     * @param numThreads    Number of threads using the lock
+     * @param layout    Memory layout of the shared registers
+     * @param waitStrategy  Wait strategy of the busy-wait loops
+     * @param ordering  Memory ordering of the shared register accesses
+     */
+    public FastPathLock(int numThreads, RegisterLayout layout,
+            WaitStrategy waitStrategy, MemoryOrdering ordering) {
+        this(numThreads, layout, waitStrategy, ordering,
+            new TournamentLock(numThreads, layout, waitStrategy, ordering));
+    }
+
+    /** Constructor
+     * 
+     * @param numThreads    Number of threads using the lock
+     * @param layout    Memory layout of the shared registers
+     * @param waitStrategy  Wait strategy of the busy-wait loops
+     * @param ordering  Memory ordering of the shared register accesses
+     * @param fallback  Lock for the same threads, acquired by the threads that
+     *                  detect contention
+     */
+    public FastPathLock(int numThreads, RegisterLayout layout,
+            WaitStrategy waitStrategy, MemoryOrdering ordering,
+            Lock fallback) {
+        // Check we have a valid number of threads
+        if (numThreads <= 0) {
+            throw new IllegalArgumentException(
+                "Invalid number of threads: numThreads must be >0");
+        }
+        if (fallback == null) {
+            throw new IllegalArgumentException(
+                "Invalid fallback: fallback must be a Lock");
+        }
+
+        this.n = numThreads;
+        this.xy = new RegisterArray(2, layout, ordering);
+        this.b = new RegisterArray(numThreads, layout, ordering);
+        this.fallback = fallback;
+        this.slow = new boolean[numThreads];
+        this.waitStrategy = waitStrategy;
+        this.ordering = ordering;
+        this.counters = new LockCounters(numThreads);
+    }
+
+    /** Lock or critical section entry protocol method of mutex
+     * 
+     * @param tid Thread ID
+     */
+    public void lock(int tid) {
+        int spins;
+
+        // start:
+        while (true) {
+            // b[i] := true
+            this.b.store(tid, 1);
+
+            // x := i
+            this.xy.store(X, tid);
+            this.ordering.fullFence();  // Store-load ordering with y
+
+            // if y != 0 then
+            if (this.xy.load(Y) != FREE) {
+                // b[i] := false
+                this.b.store(tid, 0);
+
+                // await y = 0, holding the fallback lock
+                this.contended(tid);
+                spins = 0;
+                while (this.xy.poll(Y) != FREE) {
+                    spins = this.waitStrategy.idle(spins);
+                    this.counters.spin(tid);
+                }
+                this.ordering.acquireFence();
+
+                // goto start
+                this.counters.restart(tid);
+                continue;
+            } // fi
+
+            // y := i
+            this.xy.store(Y, tid + 1);
+            this.ordering.fullFence();  // Store-load ordering with x
+
+            // if x != i then
+            if (this.xy.load(X) != tid) {
+                // b[i] := false
+                this.b.store(tid, 0);
+                this.ordering.fullFence();  // Store-load ordering with b[j]
+
+                // for j := 1 to N do await not b[j] od
+                for (int j=0; j<this.n; j++) {
+                    spins = 0;
+                    while (this.b.poll(j) == 1) {
+                        spins = this.waitStrategy.idle(spins);
+                        this.counters.spin(tid);
+                    }
+                }
+                this.ordering.acquireFence();
+
+                // if y != i then
+                if (this.xy.load(Y) != tid + 1) {
+                    // await y = 0, holding the fallback lock
+                    this.contended(tid);
+                    spins = 0;
+                    while (this.xy.poll(Y) != FREE) {
+                        spins = this.waitStrategy.idle(spins);
+                        this.counters.spin(tid);
+                    }
+                    this.ordering.acquireFence();
+
+                    // goto start
+                    this.counters.restart(tid);
+                    continue;
+                } // fi
+            } // fi
+
+            break;
+        }
+        this.counters.acquire(tid);
+    }
+
+    /** Unlock or critical section exit protocol method of mutex
+     * 
+     * @param tid Thread ID
+     */
+    public void unlock(int tid) {
+        // y := 0 (release, so the next thread sees the writes made in the
+        // critical section)
+        this.xy.store(Y, FREE);
+
+        // b[i] := false
+        this.b.store(tid, 0);
+
+        // Let the next thread that detected contention in
+        if (this.slow[tid]) {
+            this.slow[tid] = false;
+            this.fallback.unlock(tid);
+        }
+    }
+
+    /** Get the event counters of the lock
+     * 
+     * @return Counters of the lock (all 0 unless run with -DlockCounters=true)
+     */
+    public LockCounters getCounters() {
+        return this.counters;
+    }
+
+    /** Get the fallback lock
+     * 
+     * @return Lock acquired by the threads that detect contention
+     */
+    public Lock getFallback() {
+        return this.fallback;
+    }
+
+    /** Acquire the fallback lock after detecting contention, if the thread
+     *  does not hold it yet
+     * 
+     * Only called when the thread has no b register set, so threads waiting
+     * for the fallback lock do not take part in the fast algorithm.
+     * 
+     * @param tid Thread ID
+     */
+    private void contended(int tid) {
+        if (!this.slow[tid]) {
+            this.fallback.lock(tid);
+            this.slow[tid] = true;
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package ReadWriteRegisterMutexes;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.Control;
+import org.openjdk.jmh.infra.ThreadParams;
+
+/** Lock handoff benchmarks
+ * 
+ * Measure how long it takes the lock to pass from the unlock of one thread to
+ * the return from lock of another thread that announced that it wants it,
+ * which is the cost of the handoff path of each algorithm (the levels of a
+ * tournament, the scan of a bakery, ...) without the cost of the critical
+ * section.
+ * 
+ * The holder of the lock does not release it until another thread announced
+ * that it is waiting for it, and then it writes the time and releases it. The
+ * next thread to acquire it records the time since the release.
+ * 
+ * A thread announces itself just before calling lock, as there is no way to
+ * tell from outside the lock when it reached its wait loop. At the release the
+ * announced waiter may still be in the entry protocol, or not even in lock
+ * yet if it was descheduled, and its sample then includes that part of the
+ * entry. So the handoff times are release-to-acquire latencies with announced
+ * intent, an upper bound of the time of a pure handoff to a spinning waiter,
+ * and they are closer to it the longer the waiters spin. When the previous
+ * holder wins the lock back before the waiter, the release is counted as a
+ * reacquisition and not sampled. With 2
+ * threads (the default) the lock ping-pongs between them, and with more
+ * threads (set with -t) it is passed around a ring of waiters:
+ * 
+ *     HandoffBenchmarks -t 2,4,8 -p lockType=TOURNAMENT,COLORED_BAKERY
+ * 
+ * JMH reports the average time between acquisitions, and every iteration
+ * prints the percentiles of the handoff times of all the threads, and the
+ * number of reacquisitions.
+ */
+@BenchmarkMode(Mode.AverageTime) // Measure average time per acquisition
+@OutputTimeUnit(TimeUnit.NANOSECONDS) // Use nanoseconds for output
+@Fork(1) // Run 1 fork with no warmup forks
+@Warmup(iterations=5, time=1) // Run that number of 1 s warmup iterations
+@Measurement(iterations=10, time=1) // Run that number of 1 s measurement iterations
+@Threads(2) // Ping-pong by default, set a ring with -t
+public class HandoffBenchmarks {
+
+    /** Lock state shared by all the threads
+     */
+    @State(Scope.Benchmark)
+    public static class HandoffState {
+
+        /** Lock being benchmarked (a name registered in LockFactory)
+         */
+        @Param({"REENTRANT", "TOURNAMENT", "COLORED_BAKERY", "ONE_BIT",
+            "ONE_BIT_PACKED", "ADAPTIVE", "FAST_PATH"})
+        String lockType;
+
+        /** Register layout of the read-write register locks
+         */
+        @Param({"PACKED"})
+        RegisterLayout layout;
+
+        /** Wait strategy of the read-write register locks
+         */
+        @Param({"SPIN"})
+        WaitStrategyType waitStrategy;
+
+        /** Memory ordering of the read-write register locks
+         */
+        @Param({"SEQUENTIAL"})
+        MemoryOrdering ordering;
+
+        /** Number of levels after which adaptive locks warn
+         */
+        @Param({"80000000"})
+        int adaptiveMaxSplitters;
+
+        /** Lock type that fast path locks acquire on contention
+         */
+        @Param({"TOURNAMENT"})
+        String fallback;
+
+        /** Lock being benchmarked if it is a Lock, or null
+         */
+        Lock lock;
+
+        /** Lock being benchmarked if it is a ReentrantLock, or null
+         */
+        ReentrantLock lockR;
+
+        /** Number of threads that announced that they wait for the lock
+         * 
+         * Incremented before calling lock and decremented once it returns.
+         */
+        final AtomicInteger waiting = new AtomicInteger();
+
+        /** Thread ID of the last holder of the lock, or -1 if none
+         */
+        volatile int holder;
+
+        /** Time the last holder released the lock
+         */
+        volatile long releasedAt;
+
+        /** State of each thread, by thread ID
+         */
+        ThreadState[] threads;
+
+        /** Setup iteration variables for benchmark
+         * 
+         * @param params    Benchmark parameters (number of threads)
+         */
+        @Setup(Level.Iteration)
+        public void doSetupIteration(BenchmarkParams params) {
+            int numThreads = params.getThreads();
+            Object lockObj = LockFactory.newLock(this.lockType,
+                new LockFactory.Options()
+                    .setNumThreads(numThreads)
+                    .setLayout(this.layout)
+                    .setWaitStrategy(this.waitStrategy)
+                    .setOrdering(this.ordering)
+                    .setAdaptiveMaxSplitters(this.adaptiveMaxSplitters)
+                    .setFallback(this.fallback));
+            this.lock = (lockObj instanceof Lock) ? (Lock) lockObj : null;
+            this.lockR = (lockObj instanceof ReentrantLock)
+                ? (ReentrantLock) lockObj : null;
+            if ((this.lock == null) && (this.lockR == null)) {
+                throw new IllegalArgumentException("ERROR: Handoff needs a "
+                    + "lock: " + this.lockType);
+            }
+            this.waiting.set(0);
+            this.holder = -1;
+            this.threads = new ThreadState[numThreads];
+        }
+
+        /** Teardown iteration variables for benchmark
+         * 
+         * Prints the handoff times of all the threads.
+         */
+        @TearDown(Level.Iteration)
+        public void doTearDownIteration() {
+            long[] buckets = new long[StatisticsLock.BUCKETS];
+            long handoffs = 0;
+            long reacquisitions = 0;
+            long total = 0;
+            long max = 0;
+            for (ThreadState t : this.threads) {
+                if (t != null) {
+                    handoffs += t.handoffs;
+                    reacquisitions += t.reacquisitions;
+                    total += t.total;
+                    max = Math.max(max, t.max);
+                    for (int b=0; b<StatisticsLock.BUCKETS; b++) {
+                        buckets[b] += t.buckets[b];
+                    }
+                }
+            }
+            System.out.print("Handoff: handoffs=" + handoffs
+                + " mean=" + ((handoffs == 0) ? 0 : (total / handoffs))
+                + " p50=" + StatisticsLock.Snapshot.percentile(buckets, max,
+                    50.0)
+                + " p99=" + StatisticsLock.Snapshot.percentile(buckets, max,
+                    99.0)
+                + " p99.9=" + StatisticsLock.Snapshot.percentile(buckets, max,
+                    99.9)
+                + " max=" + max + " ns reacquisitions=" + reacquisitions
+                + ": ");
+            this.lock = null;
+            this.lockR = null;
+        }
+    }
+
+    /** Per thread state
+     */
+    @State(Scope.Thread)
+    public static class ThreadState {
+
+        /** Thread ID passed to the lock
+         */
+        int tid;
+
+        /** Copies of the locks of the HandoffState
+         */
+        Lock lock;
+        ReentrantLock lockR;
+
+        /** Number of handoffs to this thread
+         */
+        long handoffs;
+
+        /** Number of times this thread got the lock back from itself
+         */
+        long reacquisitions;
+
+        /** Total and maximum handoff time to this thread, in nanoseconds
+         */
+        long total;
+        long max;
+
+        /** Power of 2 histogram of the handoff times (see StatisticsLock)
+         */
+        long[] buckets;
+
+        /** Setup iteration variables for benchmark
+         * 
+         * @param handoffState  Lock state, set up before this state
+         * @param params        Thread parameters (thread index)
+         */
+        @Setup(Level.Iteration)
+        public void doSetupIteration(HandoffState handoffState,
+                ThreadParams params) {
+            this.tid = params.getThreadIndex();
+            this.lock = handoffState.lock;
+            this.lockR = handoffState.lockR;
+            this.handoffs = 0;
+            this.reacquisitions = 0;
+            this.total = 0;
+            this.max = 0;
+            this.buckets = new long[StatisticsLock.BUCKETS];
+            handoffState.threads[this.tid] = this;
+        }
+
+        /** Record a handoff to this thread
+         * 
+         * @param nanos Time from the release to the acquisition
+         */
+        void record(long nanos) {
+            if (nanos < 0) {
+                nanos = 0;
+            }
+            this.handoffs++;
+            this.total += nanos;
+            this.max = Math.max(this.max, nanos);
+            this.buckets[StatisticsLock.bucket(nanos)]++;
+        }
+    }
+
+    /** Handoff benchmark
+     * 
+     * Announces that it waits for the lock, acquires it, records the time
+     * since another thread released it, waits for another thread to announce
+     * itself, and releases it.
+     */
+    @Benchmark
+    public void handoff(HandoffState state, ThreadState threadState,
+            Control control) {
+        int tid = threadState.tid;
+        state.waiting.incrementAndGet();
+        if (threadState.lock != null) {
+            threadState.lock.lock(tid);
+        } else {
+            threadState.lockR.lock();
+        }
+        long acquiredAt = System.nanoTime();
+        state.waiting.decrementAndGet();
+
+        int previous = state.holder;
+        if (previous == tid) {
+            threadState.reacquisitions++;
+        } else if (previous >= 0) {
+            threadState.record(acquiredAt - state.releasedAt);
+        }
+        state.holder = tid;
+
+        // Only release the lock when there is a waiter to hand it to
+        while ((state.waiting.get() == 0) && !control.stopMeasurement) {
+            Thread.onSpinWait();
+        }
+
+        state.releasedAt = System.nanoTime();
+        if (threadState.lock != null) {
+            threadState.lock.unlock(tid);
+        } else {
+            threadState.lockR.unlock();
+        }
+    }
+}
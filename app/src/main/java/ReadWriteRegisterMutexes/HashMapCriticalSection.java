@@ -0,0 +1,123 @@
+/** Open-addressing hash map update critical section workload
+ */
+
+package ReadWriteRegisterMutexes;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/** Open-addressing hash map update critical section workload
+ * 
+ * Updates a random key of a small int to int hash map with linear probing:
+ * even threads add 1 to the value of the key, and odd threads subtract 1,
+ * inserting the key if it is missing. The keys take at most half of the
+ * slots, so probe chains stay short. The map never holds a key twice, and the
+ * sum of its values is the net of all the updates.
+ */
+public class HashMapCriticalSection implements CriticalSection {
+    /** Default number of slots (a power of 2)
+     */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    /** Marker of an empty slot
+     */
+    private static final int EMPTY = -1;
+
+    /** Key of each slot, or EMPTY
+     */
+    private final int[] keys;
+
+    /** Value of each slot
+     */
+    private final int[] values;
+
+    /** Random numbers of each thread
+     */
+    private final ThreadRandom random;
+
+    /** Number of keys in the map
+     */
+    private int size;
+
+    /** Net of all the updates
+     */
+    private long net;
+
+    /** Constructor with the default capacity
+     * 
+     * @param numThreads    Number of threads running the critical section
+     */
+    public HashMapCriticalSection(int numThreads) {
+        this(numThreads, HashMapCriticalSection.DEFAULT_CAPACITY);
+    }
+
+    /** Constructor
+     * 
+     * @param numThreads    Number of threads running the critical section
+     * @param capacity      Number of slots (a power of 2 >=2)
+     */
+    public HashMapCriticalSection(int numThreads, int capacity) {
+        if ((capacity < 2) || (Integer.bitCount(capacity) != 1)) {
+            throw new IllegalArgumentException(
+                "Invalid capacity: capacity must be a power of 2 >=2");
+        }
+        this.keys = new int[capacity];
+        this.values = new int[capacity];
+        this.random = new ThreadRandom(numThreads);
+        this.reset();
+    }
+
+    /** Add or subtract 1 to the value of a random key
+     * 
+     * @param tid   Thread ID
+     * @param add   True to add 1, False to subtract 1
+     */
+    public void run(int tid, boolean add) {
+        int mask = this.keys.length - 1;
+        int key = this.random.next(tid) & (mask >>> 1);
+        int slot = ((key * 0x9E3779B9) >>> 16) & mask;
+        while ((this.keys[slot] != key) && (this.keys[slot] != EMPTY)) {
+            slot = (slot + 1) & mask;
+        }
+        if (this.keys[slot] == EMPTY) {
+            this.keys[slot] = key;
+            this.size++;
+        }
+        this.values[slot] += add ? 1 : -1;
+        this.net += add ? 1 : -1;
+    }
+
+    /** Empty the map
+     */
+    public void reset() {
+        Arrays.fill(this.keys, EMPTY);
+        Arrays.fill(this.values, 0);
+        this.size = 0;
+        this.net = 0;
+    }
+
+    /** Check that no key is in the map twice, and the values add up
+     * 
+     * @return null if the invariants hold, or a description of the error
+     */
+    public String check() {
+        Set<Integer> seen = new HashSet<>();
+        long sum = 0;
+        for (int slot=0; slot<this.keys.length; slot++) {
+            if (this.keys[slot] != EMPTY) {
+                if (!seen.add(this.keys[slot])) {
+                    return "key " + this.keys[slot] + " inserted twice";
+                }
+                sum += this.values[slot];
+            }
+        }
+        if (seen.size() != this.size) {
+            return "size " + this.size + " expected " + seen.size();
+        }
+        if (sum != this.net) {
+            return "values sum " + sum + " expected " + this.net;
+        }
+        return null;
+    }
+}
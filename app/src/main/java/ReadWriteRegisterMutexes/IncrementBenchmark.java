@@ -1,51 +1,41 @@
 package ReadWriteRegisterMutexes;
 
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
 import java.util.concurrent.locks.ReentrantLock;
 
 /** Shared counter increment mutex benchmark class
  * 
  * The benchmark consists on incrementing a shared counter a set amount of times
- * by set of threads to benchmark the mutex.
+ * by set of threads to benchmark the mutex. The number of threads and
+ * increments are parameters of the benchmarks that use it (see
+ * LockBenchmarks).
+ * 
+ * The worker threads are started once, on the first run with a given number
+ * of threads, and are reused by the following runs, so thread creation is not
+ * part of the measured time. Each run hands the workers their settings, and
+ * releases all of them at once through a start barrier, so every thread
+ * contends for the lock from the first increment. Call close to stop the
+ * threads.
  */
-public class IncrementBenchmark {
-
-    /** Global setting for number of threads on benchmarks with heavy contention
-     */
-    private static int heavyContentionThreadNum = 8;
-    //private static int heavyContentionThreadNum = 4;
-    //private static int heavyContentionThreadNum = 2;
-
-    /** Global setting for increments in the benchmarks
-     */
-    private static int incrementNum = 5000000;
-
-    /** Global setting for number of threads on benchmarks with no contention
+public class IncrementBenchmark implements AutoCloseable {
+    /** Workers run by the threads, reconfigured on every run
      */
-    private static int noContentionThreadNum = 1;
+    private Worker[] workers = new Worker[0];
 
-    /** Getter method for number of threads for a heavy contention benchmark
-     * 
-     * @return Number of threads for a heavy contention benchmark (heavyContentionThreadNum)
+    /** Pool of worker threads, one per worker
      */
-    public int getHeavyContentionThreadNum() {
-        return IncrementBenchmark.heavyContentionThreadNum;
-    }
+    private Thread[] threads = new Thread[0];
 
-    /** Getter method for number of increments
-     * 
-     * @return Number of increments for the benchmark (incrementNum)
+    /** Barrier that releases the worker threads and the caller at the start
+     *  of a run
      */
-    public int getIncrementNum() {
-        return IncrementBenchmark.incrementNum;
-    }
+    private CyclicBarrier start;
 
-    /** Getter method for number of threads for a no contention benchmark
-     * 
-     * @return Number of threads for a no contention benchmark (noContentionThreadNum)
+    /** Latch that the worker threads count down when they finish a run
      */
-    public int getNoContentionThreadNum() {
-        return IncrementBenchmark.noContentionThreadNum;
-    }
+    private volatile CountDownLatch done;
 
     /** Run the increment a shared counter a set number of times per thread
      *  operation to benchmark
@@ -63,65 +53,140 @@ public class IncrementBenchmark {
      * @param lockObj   Lock object of type Lock or ReentrantLock, or null
      */
     public int runIncrementBenchmark(int numWorkers, int increments, Object lockObj) {
-        Runnable[] workers = new Runnable[numWorkers];
-        Thread[] threads = new Thread[numWorkers];
+        return this.runIncrementBenchmark(numWorkers, increments, lockObj,
+            null);
+    }
+
+    /** Run a critical section workload a set number of times per thread
+     * 
+     * Like the increment benchmark, but each thread runs the critical section
+     * instead of incrementing/decrementing the shared counter. The critical
+     * section is reset before the run, and its invariants can be checked
+     * after it.
+     * 
+     * @param numWorkers    Number of worker threads
+     * @param increments    Number of critical sections per thread
+     * @param lockObj   Lock object of type Lock or ReentrantLock, or null
+     * @param criticalSection   Workload, or null to increment/decrement the
+     *                          shared counter
+     * @return Final value of the shared counter
+     */
+    public int runIncrementBenchmark(int numWorkers, int increments,
+            Object lockObj, CriticalSection criticalSection) {
+        if (numWorkers != this.threads.length) {
+            this.startThreads(numWorkers);
+        }
 
         if (lockObj == null) {
             // No lock
-            // Initialize workers
-            for (int i=0; i< numWorkers; i++) {
-                // Even workers add, odd workers subtract
-                workers[i] = new Worker(i, (((i%2) == 0) ? true : false),
-                    increments);
+            for (Worker worker : this.workers) {
+                worker.setLockType(Worker.LockType.NO_LOCK);
             }
         } else if (lockObj instanceof Lock) {
             // Lock interface
-            Lock lock = (Lock) lockObj;
-
-            // Initialize workers
-            for (int i=0; i< numWorkers; i++) {
-                // Even workers add, odd workers subtract
-                workers[i] = new Worker(i, (((i%2) == 0) ? true : false),
-                    increments, lock);
+            for (Worker worker : this.workers) {
+                worker.setLock((Lock) lockObj);
+                worker.setLockType(Worker.LockType.LOCK_INTERFACE);
             }
         } else if (lockObj instanceof ReentrantLock) {
             // ReentrantLock
-            ReentrantLock lock = (ReentrantLock) lockObj;
-
-            // Initialize workers
-            for (int i=0; i< numWorkers; i++) {
-                // Even workers add, odd workers subtract
-                workers[i] = new Worker(i, (((i%2) == 0) ? true : false),
-                    increments, lock);
+            for (Worker worker : this.workers) {
+                worker.setLockR((ReentrantLock) lockObj);
+                worker.setLockType(Worker.LockType.LOCK_REENTRANT);
             }
         } else {
             throw new IllegalArgumentException("ERROR: Unknown type of lock");
         }
+        for (Worker worker : this.workers) {
+            worker.setIncrements(increments);
+            worker.setCriticalSection(criticalSection);
+        }
+        if (criticalSection != null) {
+            criticalSection.reset();
+        }
 
         // Initialize the shared counter c
-        ((Worker)workers[0]).setC(0);
+        this.workers[0].setC(0);
+
+        // Release the threads together, and wait for them to finish
+        this.done = new CountDownLatch(numWorkers);
+        try {
+            this.start.await();
+            this.done.await();
+        } catch (InterruptedException | BrokenBarrierException e) {
+            System.out.println("ERROR: " + e);
+        }
 
-        // Spawn threads
-        for (int i=0; i<numWorkers; i++) {
-            threads[i] = new Thread(workers[i], "T" + i);
+        // Report the lock counters of this run, if they are enabled
+        if (LockCounters.ENABLED && (lockObj instanceof Instrumented)) {
+            LockCounters counters = ((Instrumented) lockObj).getCounters();
+            System.out.print("Counters: " + counters + ": ");
+            counters.reset();
         }
 
-        // Start threads
-        for (int i=0; i<numWorkers; i++) {
-            threads[i].start();
+        // Drop the lock, so it can be collected between runs
+        for (Worker worker : this.workers) {
+            worker.setLock(null);
+            worker.setLockR(null);
+            worker.setCriticalSection(null);
         }
 
-        // Wait for threads to terminate
-        for (int i=0; i<numWorkers; i++) {
+        // Check we got the right result
+        //System.out.print("c = " + this.workers[0].getC() + ": ");
+        return this.workers[0].getC();
+    }
+
+    /** Stop the worker threads
+     */
+    @Override
+    public void close() {
+        for (Thread thread : this.threads) {
+            thread.interrupt();
+        }
+        for (Thread thread : this.threads) {
             try {
-                threads[i].join();
+                thread.join();
             } catch (InterruptedException e) {
-                System.out.println("ERROR: T" + i + ": " + e);
+                System.out.println("ERROR: " + thread.getName() + ": " + e);
             }
         }
+        this.workers = new Worker[0];
+        this.threads = new Thread[0];
+    }
 
-        // Check we got the right result
-        //System.out.print("c = " + ((Worker)workers[0]).getC() + ": ");
-        return ((Worker)workers[0]).getC();
+    /** Start a new pool of worker threads
+     * 
+     * @param numWorkers    Number of worker threads
+     */
+    private void startThreads(int numWorkers) {
+        this.close();
+        this.start = new CyclicBarrier(numWorkers + 1);
+        this.workers = new Worker[numWorkers];
+        this.threads = new Thread[numWorkers];
+        for (int i=0; i<numWorkers; i++) {
+            // Even workers add, odd workers subtract
+            this.workers[i] = new Worker(i, (((i%2) == 0) ? true : false), 0);
+            Worker worker = this.workers[i];
+            this.threads[i] = new Thread(() -> this.work(worker), "T" + i);
+            this.threads[i].setDaemon(true);
+            this.threads[i].start();
+        }
+    }
+
+    /** Loop of a worker thread: wait for the start of a run, run the worker
+     *  and report that it finished, until interrupted
+     * 
+     * @param worker    Worker of the thread
+     */
+    private void work(Worker worker) {
+        while (true) {
+            try {
+                this.start.await();
+            } catch (InterruptedException | BrokenBarrierException e) {
+                return;
+            }
+            worker.run();
+            this.done.countDown();
+        }
     }
 }
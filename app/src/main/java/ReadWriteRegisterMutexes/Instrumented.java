@@ -0,0 +1,14 @@
+/** Interface of locks that keep LockCounters
+ */
+
+package ReadWriteRegisterMutexes;
+
+/** Interface of locks that keep LockCounters
+ */
+public interface Instrumented {
+    /** Get the event counters of the lock
+     * 
+     * @return Counters of the lock (all 0 unless run with -DlockCounters=true)
+     */
+    public LockCounters getCounters();
+}
@@ -0,0 +1,205 @@
+/** Lock decorator that emits Java Flight Recorder events
+ */
+
+package ReadWriteRegisterMutexes;
+
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.FlightRecorderListener;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+
+/** Lock decorator that emits Java Flight Recorder events
+ * 
+ * Wraps any Lock and commits a ContendedAcquireEvent when a thread waited in
+ * lock for at least the contended threshold, and a LongHoldEvent when a thread
+ * held the lock for at least the hold threshold. The events go to the JFR
+ * recordings that are running, next to the GC and safepoint events.
+ * 
+ * While no recording is running, lock and unlock only add a read of a
+ * volatile flag, which a FlightRecorderListener keeps up to date. While
+ * recording, they read the clock twice per acquisition, and only create events
+ * above the thresholds.
+ * 
+ * The default thresholds are read from the jfrLock.contendedThresholdNanos
+ * (10 us) and jfrLock.holdThresholdNanos (1 ms) system properties.
+ */
+public class JfrLock implements Lock {
+    /** Default contended acquire threshold in nanoseconds
+     */
+    public static final long DEFAULT_CONTENDED_THRESHOLD
+        = Long.getLong("jfrLock.contendedThresholdNanos", 10000L);
+
+    /** Default long hold threshold in nanoseconds
+     */
+    public static final long DEFAULT_HOLD_THRESHOLD
+        = Long.getLong("jfrLock.holdThresholdNanos", 1000000L);
+
+    /** True while at least one JFR recording is running
+     */
+    private static volatile boolean recording;
+
+    static {
+        FlightRecorder.addListener(new FlightRecorderListener() {
+            @Override
+            public void recordingStateChanged(Recording changed) {
+                updateRecording();
+            }
+        });
+
+        // Recordings started before this class was loaded, such as with
+        // -XX:StartFlightRecording
+        if (FlightRecorder.isInitialized()) {
+            updateRecording();
+        }
+    }
+
+    /** Number of longs between the entries of consecutive threads (128 bytes)
+     */
+    private static final int STRIDE = 16;
+
+    /** Name of the lock in the events
+     */
+    private final String name;
+
+    /** Lock being decorated
+     */
+    private final Lock lock;
+
+    /** Counters of the decorated lock, or null if it has none
+     */
+    private final LockCounters counters;
+
+    /** Minimum wait in lock for a ContendedAcquireEvent, in nanoseconds
+     */
+    private final long contendedThreshold;
+
+    /** Minimum time between lock and unlock for a LongHoldEvent, in
+     *  nanoseconds
+     */
+    private final long holdThreshold;
+
+    /** Time each thread acquired the lock, or 0 if it was not recording then
+     * 
+     * Each entry is only accessed by its thread, and is padded away from the
+     * others.
+     */
+    private final long[] lockedAt;
+
+    /** Constructor with the default thresholds
+     * 
+     * @param lock          Lock to decorate
+     * @param numThreads    Number of threads using the lock
+     */
+    public JfrLock(Lock lock, int numThreads) {
+        this(lock.getClass().getSimpleName(), lock, numThreads,
+            DEFAULT_CONTENDED_THRESHOLD, DEFAULT_HOLD_THRESHOLD);
+    }
+
+    /** Constructor
+     * 
+     * @param name          Name of the lock in the events
+     * @param lock          Lock to decorate
+     * @param numThreads    Number of threads using the lock
+     * @param contendedThreshold    Minimum wait for a ContendedAcquireEvent,
+     *                              in nanoseconds
+     * @param holdThreshold     Minimum hold time for a LongHoldEvent, in
+     *                          nanoseconds
+     */
+    public JfrLock(String name, Lock lock, int numThreads,
+            long contendedThreshold, long holdThreshold) {
+        if (numThreads <= 0) {
+            throw new IllegalArgumentException(
+                "Invalid number of threads: numThreads must be >0");
+        }
+        this.name = name;
+        this.lock = lock;
+        this.counters = (lock instanceof Instrumented)
+            ? ((Instrumented) lock).getCounters() : null;
+        this.contendedThreshold = contendedThreshold;
+        this.holdThreshold = holdThreshold;
+        this.lockedAt = new long[(numThreads + 2) * STRIDE];
+    }
+
+    /** Lock or critical section entry protocol method of mutex
+     * 
+     * @param tid Thread ID
+     */
+    public void lock(int tid) {
+        if (!recording) {
+            this.lock.lock(tid);
+            return;
+        }
+
+        long spins = this.spins(tid);
+        long start = System.nanoTime();
+        this.lock.lock(tid);
+        long end = System.nanoTime();
+        this.lockedAt[(tid + 1) * STRIDE] = end;
+
+        if (end - start >= this.contendedThreshold) {
+            ContendedAcquireEvent event = new ContendedAcquireEvent();
+            if (event.shouldCommit()) {
+                event.lock = this.name;
+                event.tid = tid;
+                event.spins = this.spins(tid) - spins;
+                event.waitDuration = end - start;
+                event.commit();
+            }
+        }
+    }
+
+    /** Unlock or critical section exit protocol method of mutex
+     * 
+     * @param tid Thread ID
+     */
+    public void unlock(int tid) {
+        long start = this.lockedAt[(tid + 1) * STRIDE];
+        if (start != 0) {
+            this.lockedAt[(tid + 1) * STRIDE] = 0;
+            long hold = System.nanoTime() - start;
+            if (hold >= this.holdThreshold) {
+                LongHoldEvent event = new LongHoldEvent();
+                if (event.shouldCommit()) {
+                    event.lock = this.name;
+                    event.tid = tid;
+                    event.holdDuration = hold;
+                    event.commit();
+                }
+            }
+        }
+        this.lock.unlock(tid);
+    }
+
+    /** Get the decorated lock
+     * 
+     * @return Lock being decorated
+     */
+    public Lock getLock() {
+        return this.lock;
+    }
+
+    /** Update the recording flag from the state of the recordings
+     */
+    private static void updateRecording() {
+        boolean running = false;
+        for (Recording r : FlightRecorder.getFlightRecorder().getRecordings()) {
+            if (r.getState() == RecordingState.RUNNING) {
+                running = true;
+            }
+        }
+        recording = running;
+    }
+
+    /** Get the spin count of a thread
+     * 
+     * @param tid Thread ID
+     * @return Busy-wait iterations of the thread in the decorated lock (0
+     *         unless run with -DlockCounters=true)
+     */
+    private long spins(int tid) {
+        if (this.counters == null) {
+            return 0;
+        }
+        return this.counters.get(tid, LockCounters.Counter.SPINS);
+    }
+}
@@ -0,0 +1,376 @@
+/** Adapter exposing a Lock as a java.util.concurrent.locks.Lock
+ */
+
+package ReadWriteRegisterMutexes;
+
+import java.util.Date;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+
+/** Adapter exposing a Lock as a java.util.concurrent.locks.Lock
+ * 
+ * Thread IDs come from a ThreadIdRegistry, so callers do not pass them. The
+ * adapter can be used with the usual lock/unlock pattern, or with a guard in a
+ * try-with-resources statement:
+ * 
+ *     try (LockAdapter.Guard guard = adapter.acquire()) {
+ *         // Critical section
+ *     }
+ * 
+ * The read-write register locks are not reentrant, and they cannot give up
+ * while waiting. So the adapter counts the threads that hold or wait for the
+ * lock, and tryLock only takes the lock when no other thread is in it, instead
+ * of entering the entry protocol and waiting behind the holder. The timed
+ * tryLock retries until its timeout. Conditions keep their own queue of
+ * waiting threads, which release the lock through the adapter while they
+ * wait and acquire it again before returning.
+ */
+public class LockAdapter implements java.util.concurrent.locks.Lock {
+    /** Adapted lock
+     */
+    private final Lock lock;
+
+    /** Registry giving the thread IDs passed to the lock
+     */
+    private final ThreadIdRegistry registry;
+
+    /** Guard returned by acquire (it holds no state, so it is shared)
+     */
+    private final Guard guard;
+
+    /** Thread holding the lock, or null
+     * 
+     * Only written by the holder, while it holds the lock, so it needs no
+     * synchronization of its own. A thread can only read itself in it if it
+     * holds the lock.
+     */
+    private Thread owner;
+
+    /** Number of threads holding or waiting for the lock
+     */
+    private final AtomicInteger users = new AtomicInteger();
+
+    /** Guard that releases the lock when closed
+     */
+    public final class Guard implements AutoCloseable {
+        /** Release the lock
+         */
+        @Override
+        public void close() {
+            LockAdapter.this.unlock();
+        }
+    }
+
+    /** Constructor with a new registry
+     * 
+     * @param lock  Lock to adapt
+     * @param numThreads    Number of threads the lock was created for
+     */
+    public LockAdapter(Lock lock, int numThreads) {
+        this(lock, new ThreadIdRegistry(numThreads));
+    }
+
+    /** Constructor
+     * 
+     * @param lock  Lock to adapt
+     * @param registry  Registry giving the thread IDs, with a capacity no
+     *                  larger than the number of threads of the lock
+     */
+    public LockAdapter(Lock lock, ThreadIdRegistry registry) {
+        this.lock = lock;
+        this.registry = registry;
+        this.guard = new Guard();
+    }
+
+    /** Get the adapted lock
+     * 
+     * @return Adapted lock
+     */
+    public Lock getLock() {
+        return this.lock;
+    }
+
+    /** Get the thread ID registry
+     * 
+     * @return Registry giving the thread IDs
+     */
+    public ThreadIdRegistry getRegistry() {
+        return this.registry;
+    }
+
+    /** Acquire the lock and return a guard that releases it when closed
+     * 
+     * @return Guard to close to release the lock
+     */
+    public Guard acquire() {
+        this.lock();
+        return this.guard;
+    }
+
+    /** Acquire the lock
+     */
+    @Override
+    public void lock() {
+        int tid = this.registry.get();
+        this.users.incrementAndGet();
+        this.lock.lock(tid);
+        this.owner = Thread.currentThread();
+    }
+
+    /** Acquire the lock unless the current thread is interrupted
+     * 
+     * The interrupt status is only checked before waiting for the lock,
+     * because the read-write register locks cannot abort a waiting thread.
+     */
+    @Override
+    public void lockInterruptibly() throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        this.lock();
+    }
+
+    /** Acquire the lock if no other thread holds or waits for it
+     * 
+     * A thread that calls lock at the same time may still get the lock first,
+     * and then this waits for it to release the lock, as it cannot leave the
+     * entry protocol of the lock.
+     * 
+     * @return True if the lock was acquired
+     */
+    @Override
+    public boolean tryLock() {
+        int tid = this.registry.get();
+        if (!this.users.compareAndSet(0, 1)) {
+            return false;
+        }
+        this.lock.lock(tid);
+        this.owner = Thread.currentThread();
+        return true;
+    }
+
+    /** Acquire the lock if no other thread holds or waits for it within the
+     *  given time
+     * 
+     * Yields between tries.
+     * 
+     * @param time  Maximum time to wait
+     * @param unit  Unit of time
+     * @return True if the lock was acquired, false if the time elapsed
+     * @throws InterruptedException if the current thread is interrupted while
+     *         waiting
+     */
+    @Override
+    public boolean tryLock(long time, TimeUnit unit)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(time);
+        while (!this.tryLock()) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            if (deadline - System.nanoTime() <= 0) {
+                return false;
+            }
+            Thread.yield();
+        }
+        return true;
+    }
+
+    /** Release the lock
+     * 
+     * @throws IllegalMonitorStateException if the current thread does not
+     *         hold the lock
+     */
+    @Override
+    public void unlock() {
+        // Releasing with an ID that does not hold the lock would reset the
+        // registers of another thread, so never claim an ID here
+        this.checkOwner();
+        this.owner = null;
+        this.lock.unlock(this.registry.find());
+        this.users.decrementAndGet();
+    }
+
+    /** Create a condition bound to this lock
+     * 
+     * @return New condition, whose methods must be called holding the lock
+     */
+    @Override
+    public Condition newCondition() {
+        return new AdapterCondition();
+    }
+
+    /** Check that the current thread holds the lock
+     * 
+     * @throws IllegalMonitorStateException if it does not
+     */
+    private void checkOwner() {
+        if ((this.registry.find() < 0)
+                || (this.owner != Thread.currentThread())) {
+            throw new IllegalMonitorStateException(
+                "Lock is not held by " + Thread.currentThread().getName());
+        }
+    }
+
+    /** Thread waiting on a condition
+     */
+    private static final class Waiter {
+        /** Waiting thread
+         */
+        final Thread thread;
+
+        /** Set when a signal took the waiter off the queue
+         */
+        volatile boolean signalled;
+
+        /** Constructor
+         * 
+         * @param thread    Waiting thread
+         */
+        Waiter(Thread thread) {
+            this.thread = thread;
+        }
+    }
+
+    /** Condition that parks its waiting threads in a queue
+     * 
+     * A waiting thread queues itself while it still holds the lock, and a
+     * signal needs the lock, so a signal sent after the waiter released the
+     * lock always finds it in the queue. A waiter that times out or is
+     * interrupted removes itself from the queue, unless a signal already
+     * took it off, in which case it consumes the signal.
+     */
+    private final class AdapterCondition implements Condition {
+        /** Waiting threads, in arrival order
+         */
+        private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+
+        /** Wait for a signal, or an interrupt
+         */
+        @Override
+        public void await() throws InterruptedException {
+            this.await(false, 0, true);
+        }
+
+        /** Wait for a signal, ignoring interrupts
+         */
+        @Override
+        public void awaitUninterruptibly() {
+            try {
+                this.await(false, 0, false);
+            } catch (InterruptedException e) {
+                // Not thrown when not interruptible
+            }
+        }
+
+        /** Wait for a signal, an interrupt or a timeout in nanoseconds
+         */
+        @Override
+        public long awaitNanos(long nanosTimeout) throws InterruptedException {
+            return this.await(true, nanosTimeout, true);
+        }
+
+        /** Wait for a signal, an interrupt or a timeout
+         */
+        @Override
+        public boolean await(long time, TimeUnit unit)
+                throws InterruptedException {
+            return this.await(true, unit.toNanos(time), true) > 0;
+        }
+
+        /** Wait for a signal, an interrupt or a deadline
+         */
+        @Override
+        public boolean awaitUntil(Date deadline) throws InterruptedException {
+            long millis = deadline.getTime() - System.currentTimeMillis();
+            return this.await(true, TimeUnit.MILLISECONDS.toNanos(millis),
+                true) > 0;
+        }
+
+        /** Wake up the longest waiting thread, if any
+         */
+        @Override
+        public void signal() {
+            LockAdapter.this.checkOwner();
+            Waiter waiter = this.waiters.poll();
+            if (waiter != null) {
+                waiter.signalled = true;
+                LockSupport.unpark(waiter.thread);
+            }
+        }
+
+        /** Wake up all the waiting threads
+         */
+        @Override
+        public void signalAll() {
+            LockAdapter.this.checkOwner();
+            Waiter waiter;
+            while ((waiter = this.waiters.poll()) != null) {
+                waiter.signalled = true;
+                LockSupport.unpark(waiter.thread);
+            }
+        }
+
+        /** Release the lock, wait for a signal, and acquire the lock again
+         * 
+         * @param timed     True to give up after nanos
+         * @param nanos     Maximum time to wait, if timed
+         * @param interruptible True to give up when interrupted
+         * @return Time left until the timeout (at least 1 if signalled, at
+         *         most 0 if it timed out), or 0 if not timed
+         * @throws InterruptedException if interruptible and interrupted
+         *         before a signal
+         */
+        private long await(boolean timed, long nanos, boolean interruptible)
+                throws InterruptedException {
+            LockAdapter.this.checkOwner();
+            if (interruptible && Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            long deadline = timed ? (System.nanoTime() + nanos) : 0;
+            Waiter waiter = new Waiter(Thread.currentThread());
+            this.waiters.add(waiter);
+            LockAdapter.this.unlock();
+
+            boolean interrupted = false;
+            while (!waiter.signalled) {
+                if (timed) {
+                    long left = deadline - System.nanoTime();
+                    if (left <= 0) {
+                        break;
+                    }
+                    LockSupport.parkNanos(this, left);
+                } else {
+                    LockSupport.park(this);
+                }
+                if (Thread.interrupted()) {
+                    interrupted = true;
+                    if (interruptible) {
+                        break;
+                    }
+                }
+            }
+
+            // Leave the queue, unless a signal already took us off it
+            boolean cancelled = !waiter.signalled
+                && this.waiters.remove(waiter);
+            LockAdapter.this.lock();
+            if (interrupted) {
+                if (interruptible && cancelled) {
+                    throw new InterruptedException();
+                }
+                Thread.currentThread().interrupt();
+            }
+            if (!timed) {
+                return 0;
+            }
+            // A signal that came late still counts as a signal
+            long left = deadline - System.nanoTime();
+            return cancelled ? left : Math.max(left, 1);
+        }
+    }
+}
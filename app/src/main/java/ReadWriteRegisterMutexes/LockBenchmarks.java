@@ -0,0 +1,203 @@
+package ReadWriteRegisterMutexes;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Timeout;
+
+/** Lock benchmarks
+ * 
+ * All locks are benchmarked by the same code, and every setting is a JMH
+ * parameter, so any combination can be selected from the command line with
+ * -p, for example:
+ * 
+ *     -p lockType=TOURNAMENT,ADAPTIVE -p threads=2,4,8 -p layout=PADDED
+ * 
+ * JMH runs every combination of parameters in its own fork, so each JVM only
+ * ever loads one lock implementation, and the JIT profiles and inlines that
+ * one alone. Do not run these benchmarks with -f 0, which would run all the
+ * locks in the JMH JVM.
+ * 
+ * Lock types are the names registered in LockFactory. Parameters that do not
+ * apply to a lock type are ignored by it. The workload parameter replaces the
+ * increment of the shared counter with a CriticalSectionType workload.
+ */
+@BenchmarkMode(Mode.SingleShotTime) // Measure single run time in benchmarks
+@OutputTimeUnit(TimeUnit.NANOSECONDS) // Use nanoseconds for output
+@Fork(1) // Run 1 fork with no warmup forks
+@Warmup(iterations=5) // Run that number of warmup iterations
+@Measurement(iterations=20) // Run that number of measurement iterations
+@Timeout(time=60, timeUnit=TimeUnit.MINUTES) // Timeout if the iteration exceeds this time
+public class LockBenchmarks {
+
+    /** Increment benchmark state
+     */
+    @State(Scope.Benchmark)
+    public static class IncrementState {
+
+        /** Lock being benchmarked (a name registered in LockFactory)
+         */
+        @Param({"NO_LOCK", "REENTRANT", "TOURNAMENT", "COLORED_BAKERY",
+            "ONE_BIT", "ONE_BIT_PACKED", "ADAPTIVE", "FAST_PATH"})
+        String lockType;
+
+        /** Number of worker threads (1 is the no contention case)
+         */
+        @Param({"1", "2", "4", "8"})
+        int threads;
+
+        /** Number of increments/decrements per thread
+         */
+        @Param({"5000000"})
+        int increments;
+
+        /** Number of threads the lock is configured for (0 for threads)
+         * 
+         * Larger than threads to measure locks that are configured for more
+         * threads than the ones that use them.
+         */
+        @Param({"0"})
+        int lockThreads;
+
+        /** Register layout of the read-write register locks
+         */
+        @Param({"PACKED"})
+        RegisterLayout layout;
+
+        /** Wait strategy of the read-write register locks
+         */
+        @Param({"SPIN"})
+        WaitStrategyType waitStrategy;
+
+        /** Memory ordering of the read-write register locks
+         */
+        @Param({"SEQUENTIAL"})
+        MemoryOrdering ordering;
+
+        /** Number of levels after which adaptive locks warn
+         */
+        @Param({"80000000"})
+        int adaptiveMaxSplitters;
+
+        /** Lock type that fast path locks acquire on contention
+         */
+        @Param({"TOURNAMENT"})
+        String fallback;
+
+        /** Critical section workload run while holding the lock
+         */
+        @Param({"COUNTER"})
+        CriticalSectionType workload;
+
+        /** Benchmark used
+         */
+        IncrementBenchmark benchmark;
+
+        /** Lock being benchmarked (Lock, ReentrantLock or null)
+         */
+        Object lock;
+
+        /** Critical section being run, or null for the shared counter
+         */
+        CriticalSection criticalSection;
+
+        /** Shared variable final state
+         */
+        int cFinal;
+
+        /** Setup trial variables for benchmark
+         */
+        @Setup(Level.Trial)
+        public void doSetupTrial() {
+            System.out.print("Setup trial: ");
+            this.benchmark = new IncrementBenchmark();
+        }
+
+        /** Teardown trial variables for benchmark
+         */
+        @TearDown(Level.Trial)
+        public void doTearDownTrial() {
+            this.benchmark.close();
+        }
+
+        /** Setup iteration variables for benchmark
+         */
+        @Setup(Level.Iteration)
+        public void doSetupIteration() {
+            System.out.print("Setup iteration: ");
+            this.lock = LockFactory.newLock(this.lockType,
+                new LockFactory.Options()
+                    .setNumThreads(Math.max(this.threads, this.lockThreads))
+                    .setLayout(this.layout)
+                    .setWaitStrategy(this.waitStrategy)
+                    .setOrdering(this.ordering)
+                    .setAdaptiveMaxSplitters(this.adaptiveMaxSplitters)
+                    .setFallback(this.fallback));
+            this.criticalSection = this.workload.newCriticalSection(
+                Math.max(this.threads, this.lockThreads));
+            this.cFinal = -1;   // Set to negative to ensure it fails if not run
+        }
+
+        /** Teardown iteration variables for benchmark
+         */
+        @TearDown(Level.Iteration)
+        public void doTearDownIteration() {
+            System.out.print("Teardown iteration: ");
+            // Even threads increment and odd threads decrement
+            int expected = (((this.threads + 1) / 2) - (this.threads / 2))
+                * this.increments;
+            String error = (this.criticalSection == null) ? null
+                : this.criticalSection.check();
+            if (error != null) {
+                System.out.print("FAIL: Concurrency error: " + error + ": ");
+            } else if ((this.criticalSection == null)
+                    && (this.cFinal != expected)) {
+                System.out.print("FAIL: Concurrency error: got " + this.cFinal
+                    + " expected " + expected + ": ");
+            } else {
+                System.out.print("PASS: ");
+            }
+            CpuTimeProfiler.addAcquisitions((long) this.threads
+                * this.increments);
+            this.lock = null;
+        }
+    }
+
+    /** Increment benchmark
+     * 
+     * The benchmark measures the time that threads number of worker threads
+     * take to increment/decrement a shared variable increments number of
+     * times. Half of the threads will increment the shared variable by 1 each
+     * time in a loop, and the other half will decrement it by 1 each time in a
+     * loop. Each time that any of the threads wants to increment/decrement the
+     * shared variable, they must request the lock, and they release the lock
+     * immediately after.
+     * 
+     * With 1 thread it measures how much overhead the lock adds without any
+     * contention, and with more threads how well it performs under heavy
+     * contention.
+     */
+    @Benchmark
+    public void increment(IncrementState state) {
+        System.out.print("Running benchmark: ");
+        state.cFinal = state.benchmark.runIncrementBenchmark
+        (
+            state.threads,
+            state.increments,
+            state.lock,
+            state.criticalSection
+        );
+    }
+}
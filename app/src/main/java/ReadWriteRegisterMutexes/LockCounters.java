@@ -0,0 +1,164 @@
+/** Per-thread event counters for the locks
+ */
+
+package ReadWriteRegisterMutexes;
+
+import java.util.Arrays;
+
+/** Per-thread event counters for the locks
+ * 
+ * Counts busy-wait iterations, restarts of the entry protocol and acquisitions
+ * of a lock, for each thread. Counting is off unless the JVM is started with
+ * -DlockCounters=true. ENABLED is a static final constant, so when it is false
+ * the JIT removes the counting methods from the lock code entirely, and no
+ * counter array is allocated.
+ * 
+ * Each thread only writes its own counters, which are plain longs on their own
+ * cache lines, so counting adds no shared writes to the lock. Reading the
+ * counters while threads run gives approximate values. They are exact once the
+ * threads have been joined.
+ */
+public final class LockCounters {
+    /** True if counting is enabled (-DlockCounters=true)
+     */
+    public static final boolean ENABLED = Boolean.getBoolean("lockCounters");
+
+    /** Events counted
+     */
+    public enum Counter {
+        /** Busy-wait loop iterations
+         */
+        SPINS,
+
+        /** Restarts of the entry protocol after losing a contest
+         */
+        RESTARTS,
+
+        /** Lock acquisitions
+         */
+        ACQUISITIONS
+    }
+
+    /** Number of longs between the counters of consecutive threads (128 bytes)
+     */
+    private static final int STRIDE = 16;
+
+    /** Counter values, STRIDE longs per thread plus padding at both ends
+     */
+    private final long[] counts;
+
+    /** Number of threads
+     */
+    private final int numThreads;
+
+    /** Constructor
+     * 
+     * @param numThreads    Number of threads using the lock
+     */
+    public LockCounters(int numThreads) {
+        this.numThreads = numThreads;
+        this.counts = ENABLED ? new long[(numThreads + 2) * STRIDE] : null;
+    }
+
+    /** Count a busy-wait loop iteration
+     * 
+     * @param tid Thread ID
+     */
+    public void spin(int tid) {
+        if (ENABLED) {
+            this.counts[this.index(tid, Counter.SPINS)]++;
+        }
+    }
+
+    /** Count a restart of the entry protocol
+     * 
+     * @param tid Thread ID
+     */
+    public void restart(int tid) {
+        if (ENABLED) {
+            this.counts[this.index(tid, Counter.RESTARTS)]++;
+        }
+    }
+
+    /** Count a lock acquisition
+     * 
+     * @param tid Thread ID
+     */
+    public void acquire(int tid) {
+        if (ENABLED) {
+            this.counts[this.index(tid, Counter.ACQUISITIONS)]++;
+        }
+    }
+
+    /** Get a counter of a thread
+     * 
+     * @param tid       Thread ID
+     * @param counter   Counter to read
+     * @return Counter value (0 if counting is disabled)
+     */
+    public long get(int tid, Counter counter) {
+        if (!ENABLED) {
+            return 0;
+        }
+        return this.counts[this.index(tid, counter)];
+    }
+
+    /** Get a counter summed over all threads
+     * 
+     * @param counter   Counter to read
+     * @return Sum of the counter for all threads (0 if counting is disabled)
+     */
+    public long get(Counter counter) {
+        long sum = 0;
+        for (int tid=0; tid<this.numThreads; tid++) {
+            sum += this.get(tid, counter);
+        }
+        return sum;
+    }
+
+    /** Reset all the counters to 0
+     * 
+     * Must not be called while threads are using the lock.
+     */
+    public void reset() {
+        if (ENABLED) {
+            Arrays.fill(this.counts, 0);
+        }
+    }
+
+    /** Get the number of threads
+     * 
+     * @return Number of threads using the lock
+     */
+    public int getNumThreads() {
+        return this.numThreads;
+    }
+
+    /** Summary of the counters of all threads
+     * 
+     * @return Counter totals, and spins and restarts per acquisition
+     */
+    @Override
+    public String toString() {
+        if (!ENABLED) {
+            return "counters disabled (run with -DlockCounters=true)";
+        }
+        long spins = this.get(Counter.SPINS);
+        long restarts = this.get(Counter.RESTARTS);
+        long acquisitions = this.get(Counter.ACQUISITIONS);
+        double per = Math.max(acquisitions, 1);
+        return "spins=" + spins + " restarts=" + restarts + " acquisitions="
+            + acquisitions + " spins/acquisition=" + (spins / per)
+            + " restarts/acquisition=" + (restarts / per);
+    }
+
+    /** Get the index of a counter in the counts array
+     * 
+     * @param tid       Thread ID
+     * @param counter   Counter
+     * @return Index of the counter
+     */
+    private int index(int tid, Counter counter) {
+        return (tid + 1) * STRIDE + counter.ordinal();
+    }
+}
@@ -0,0 +1,236 @@
+/** Registry of the locks that can be benchmarked
+ */
+
+package ReadWriteRegisterMutexes;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+import ReadWriteRegisterMutexes.Adaptive.AdaptiveLock;
+import ReadWriteRegisterMutexes.ColoredBakery.ColoredBakeryLock;
+import ReadWriteRegisterMutexes.FastPath.FastPathLock;
+import ReadWriteRegisterMutexes.OneBit.OneBitLock;
+import ReadWriteRegisterMutexes.OneBit.PackedOneBitLock;
+import ReadWriteRegisterMutexes.Tournament.TournamentLock;
+
+/** Registry of the locks that can be benchmarked
+ * 
+ * Each lock type is registered under a name with a Builder that creates a lock
+ * from a set of Options, so benchmarks select lock types by name (for example
+ * from a JMH @Param) instead of having a class per lock. New locks are added
+ * with register.
+ * 
+ * Locks are returned as Object, like IncrementBenchmark takes them: a Lock, a
+ * java.util.concurrent ReentrantLock, which the workers call directly so it is
+ * measured without an adapter, or null for no lock at all.
+ */
+public final class LockFactory {
+    /** Function that creates a lock
+     */
+    @FunctionalInterface
+    public interface Builder {
+        /** Create a lock
+         * 
+         * @param options   Lock options
+         * @return New Lock, ReentrantLock, or null for no lock
+         */
+        public Object newLock(Options options);
+    }
+
+    /** Options used to create a lock
+     * 
+     * Locks ignore the options that do not apply to them.
+     */
+    public static final class Options {
+        /** Number of threads using the lock
+         */
+        private int numThreads = 1;
+
+        /** Memory layout of the shared registers
+         */
+        private RegisterLayout layout = RegisterLayout.PACKED;
+
+        /** Wait strategy of the busy-wait loops
+         */
+        private WaitStrategyType waitStrategy = WaitStrategyType.SPIN;
+
+        /** Memory ordering of the shared register accesses
+         */
+        private MemoryOrdering ordering = MemoryOrdering.SEQUENTIAL;
+
+        /** Number of levels after which adaptive locks warn
+         */
+        private int adaptiveMaxSplitters = 80000000;
+
+        /** Lock type acquired by fast path locks on contention
+         */
+        private String fallback = "TOURNAMENT";
+
+        /** Get the number of threads
+         */
+        public int getNumThreads() {
+            return this.numThreads;
+        }
+
+        /** Set the number of threads
+         */
+        public Options setNumThreads(int numThreads) {
+            this.numThreads = numThreads;
+            return this;
+        }
+
+        /** Get the register layout
+         */
+        public RegisterLayout getLayout() {
+            return this.layout;
+        }
+
+        /** Set the register layout
+         */
+        public Options setLayout(RegisterLayout layout) {
+            this.layout = layout;
+            return this;
+        }
+
+        /** Get the wait strategy
+         */
+        public WaitStrategyType getWaitStrategy() {
+            return this.waitStrategy;
+        }
+
+        /** Set the wait strategy
+         */
+        public Options setWaitStrategy(WaitStrategyType waitStrategy) {
+            this.waitStrategy = waitStrategy;
+            return this;
+        }
+
+        /** Get the memory ordering
+         */
+        public MemoryOrdering getOrdering() {
+            return this.ordering;
+        }
+
+        /** Set the memory ordering
+         */
+        public Options setOrdering(MemoryOrdering ordering) {
+            this.ordering = ordering;
+            return this;
+        }
+
+        /** Get the adaptive lock splitters
+         */
+        public int getAdaptiveMaxSplitters() {
+            return this.adaptiveMaxSplitters;
+        }
+
+        /** Set the adaptive lock splitters
+         */
+        public Options setAdaptiveMaxSplitters(int adaptiveMaxSplitters) {
+            this.adaptiveMaxSplitters = adaptiveMaxSplitters;
+            return this;
+        }
+
+        /** Get the fallback lock type of fast path locks
+         */
+        public String getFallback() {
+            return this.fallback;
+        }
+
+        /** Set the fallback lock type of fast path locks
+         */
+        public Options setFallback(String fallback) {
+            this.fallback = fallback;
+            return this;
+        }
+    }
+
+    /** Registered lock builders by name, in registration order
+     */
+    private static final Map<String, Builder> BUILDERS = new LinkedHashMap<>();
+
+    static {
+        register("NO_LOCK", o -> null);
+        register("REENTRANT", o -> new ReentrantLock());
+        register("TOURNAMENT", o -> new TournamentLock(o.getNumThreads(),
+            o.getLayout(), o.getWaitStrategy().newWaitStrategy(),
+            o.getOrdering()));
+        register("COLORED_BAKERY", o -> new ColoredBakeryLock(
+            o.getNumThreads(), o.getLayout(),
+            o.getWaitStrategy().newWaitStrategy(), o.getOrdering()));
+        register("ONE_BIT", o -> new OneBitLock(o.getNumThreads(),
+            o.getLayout(), o.getWaitStrategy().newWaitStrategy(),
+            o.getOrdering()));
+        register("ONE_BIT_PACKED", o -> new PackedOneBitLock(
+            o.getNumThreads(), o.getLayout(),
+            o.getWaitStrategy().newWaitStrategy(), o.getOrdering()));
+        register("ADAPTIVE", o -> new AdaptiveLock(o.getNumThreads(),
+            o.getAdaptiveMaxSplitters(), o.getLayout(),
+            o.getWaitStrategy().newWaitStrategy(), o.getOrdering()));
+        register("FAST_PATH", o -> new FastPathLock(o.getNumThreads(),
+            o.getLayout(), o.getWaitStrategy().newWaitStrategy(),
+            o.getOrdering(), newFallback(o)));
+    }
+
+    private LockFactory() {
+    }
+
+    /** Register a lock type
+     * 
+     * @param name      Name of the lock type
+     * @param builder   Function that creates a lock of the type
+     */
+    public static synchronized void register(String name, Builder builder) {
+        if (BUILDERS.containsKey(name)) {
+            throw new IllegalArgumentException("ERROR: Lock type already "
+                + "registered: " + name);
+        }
+        BUILDERS.put(name, builder);
+    }
+
+    /** Create a lock
+     * 
+     * @param name      Name of the lock type
+     * @param options   Lock options
+     * @return New Lock, ReentrantLock, or null for no lock
+     */
+    public static synchronized Object newLock(String name, Options options) {
+        Builder builder = BUILDERS.get(name);
+        if (builder == null) {
+            throw new IllegalArgumentException("ERROR: Unknown type of lock: "
+                + name + " (registered: " + BUILDERS.keySet() + ")");
+        }
+        return builder.newLock(options);
+    }
+
+    /** Create the fallback lock of a fast path lock
+     * 
+     * @param options   Lock options, with the fallback lock type
+     * @return New Lock
+     */
+    private static Lock newFallback(Options options) {
+        if (options.getFallback().equals("FAST_PATH")) {
+            throw new IllegalArgumentException("ERROR: A fast path lock "
+                + "cannot fall back to itself");
+        }
+        Object fallback = newLock(options.getFallback(), options);
+        if (!(fallback instanceof Lock)) {
+            throw new IllegalArgumentException("ERROR: Fallback must be a "
+                + "read-write register lock: " + options.getFallback());
+        }
+        return (Lock) fallback;
+    }
+
+    /** Get the names of the registered lock types
+     * 
+     * @return Names in registration order
+     */
+    public static synchronized Set<String> names() {
+        return Collections.unmodifiableSet(
+            new LinkedHashSet<>(BUILDERS.keySet()));
+    }
+}
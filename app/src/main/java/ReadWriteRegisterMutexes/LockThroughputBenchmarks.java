@@ -0,0 +1,386 @@
+package ReadWriteRegisterMutexes;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.infra.ThreadParams;
+
+/** Lock throughput benchmarks
+ * 
+ * Unlike LockBenchmarks, which times whole IncrementBenchmark runs of a fixed
+ * number of increments, these benchmarks run on JMH worker threads for a fixed
+ * time. JMH starts all the threads before the measurement, and only measures
+ * while all of them run (synchronized iterations), so neither thread startup
+ * nor the threads that finish first are measured. Each operation is one lock,
+ * increment/decrement and unlock of a shared variable.
+ * 
+ * The throughput benchmark reports operations per second, and the averageTime
+ * benchmark nanoseconds per operation, of all threads together. The latency
+ * benchmark samples the time of individual operations, and reports their
+ * percentiles. The fairness benchmark also counts the acquisitions of each
+ * thread and the longest time it went without acquiring the lock, including
+ * before its first and after its last acquisition, and every iteration prints
+ * Jain's fairness index, the min/max ratio of the acquisitions of the threads
+ * and the threads that never acquired the lock. The number of threads is set with -t, for
+ * example:
+ * 
+ *     LockThroughputBenchmarks -t 8 -p lockType=TOURNAMENT,ADAPTIVE
+ * 
+ * Each JMH thread uses its thread index as its lock thread ID. With
+ * -p statistics=true the lock is wrapped in a StatisticsLock, and every
+ * iteration prints the wait and hold percentiles of each thread, which show
+ * locks that starve some thread IDs.
+ * 
+ * The csTokens and thinkTokens parameters add work inside the critical section
+ * and between acquisitions, in Blackhole.consumeCPU tokens, to measure the
+ * locks under workloads other than back to back increments. CrossoverReport
+ * sweeps them and compares each lock with ReentrantLock.
+ */
+@OutputTimeUnit(TimeUnit.SECONDS) // Use seconds for output
+@Fork(1) // Run 1 fork with no warmup forks
+@Warmup(iterations=5, time=1) // Run that number of 1 s warmup iterations
+@Measurement(iterations=10, time=1) // Run that number of 1 s measurement iterations
+@Threads(4) // Default number of threads, set with -t
+public class LockThroughputBenchmarks {
+
+    /** Lock state shared by all the threads
+     */
+    @State(Scope.Benchmark)
+    public static class LockState {
+
+        /** Lock being benchmarked (a name registered in LockFactory)
+         */
+        @Param({"NO_LOCK", "REENTRANT", "TOURNAMENT", "COLORED_BAKERY",
+            "ONE_BIT", "ONE_BIT_PACKED", "ADAPTIVE", "FAST_PATH"})
+        String lockType;
+
+        /** Number of threads the lock is configured for (0 for the number of
+         *  JMH threads)
+         */
+        @Param({"0"})
+        int lockThreads;
+
+        /** Register layout of the read-write register locks
+         */
+        @Param({"PACKED"})
+        RegisterLayout layout;
+
+        /** Wait strategy of the read-write register locks
+         */
+        @Param({"SPIN"})
+        WaitStrategyType waitStrategy;
+
+        /** Memory ordering of the read-write register locks
+         */
+        @Param({"SEQUENTIAL"})
+        MemoryOrdering ordering;
+
+        /** Number of levels after which adaptive locks warn
+         */
+        @Param({"80000000"})
+        int adaptiveMaxSplitters;
+
+        /** Lock type that fast path locks acquire on contention
+         */
+        @Param({"TOURNAMENT"})
+        String fallback;
+
+        /** Wrap the lock in a StatisticsLock and print its report after each
+         *  iteration (only for Lock interface locks)
+         */
+        @Param({"false"})
+        boolean statistics;
+
+        /** Work inside the critical section, in Blackhole.consumeCPU tokens
+         */
+        @Param({"0"})
+        int csTokens;
+
+        /** Work between acquisitions, in Blackhole.consumeCPU tokens
+         */
+        @Param({"0"})
+        int thinkTokens;
+
+        /** Lock being benchmarked if it is a Lock, or null
+         */
+        Lock lock;
+
+        /** Lock being benchmarked if it is a ReentrantLock, or null
+         */
+        ReentrantLock lockR;
+
+        /** Shared variable incremented/decremented by the threads
+         */
+        volatile int c;
+
+        /** State of each thread, by thread ID
+         */
+        ThreadState[] threads;
+
+        /** Setup iteration variables for benchmark
+         * 
+         * @param params    Benchmark parameters (number of threads)
+         */
+        @Setup(Level.Iteration)
+        public void doSetupIteration(BenchmarkParams params) {
+            int numThreads = params.getThreads();
+            Object lockObj = LockFactory.newLock(this.lockType,
+                new LockFactory.Options()
+                    .setNumThreads(Math.max(numThreads, this.lockThreads))
+                    .setLayout(this.layout)
+                    .setWaitStrategy(this.waitStrategy)
+                    .setOrdering(this.ordering)
+                    .setAdaptiveMaxSplitters(this.adaptiveMaxSplitters)
+                    .setFallback(this.fallback));
+            this.lock = (lockObj instanceof Lock) ? (Lock) lockObj : null;
+            if (this.statistics && (this.lock != null)) {
+                this.lock = new StatisticsLock(this.lockType, this.lock,
+                    Math.max(numThreads, this.lockThreads));
+            }
+            this.lockR = (lockObj instanceof ReentrantLock)
+                ? (ReentrantLock) lockObj : null;
+            this.c = 0;
+            this.threads = new ThreadState[numThreads];
+        }
+
+        /** Teardown iteration variables for benchmark
+         * 
+         * Checks that the shared variable is the sum of the changes that the
+         * threads made to it.
+         */
+        @TearDown(Level.Iteration)
+        public void doTearDownIteration() {
+            long expected = 0;
+            for (ThreadState t : this.threads) {
+                expected += (t == null) ? 0 : t.delta;
+            }
+            if (this.c != (int) expected) {
+                System.out.print("FAIL: Concurrency error: got " + this.c
+                    + " expected " + (int) expected + ": ");
+            } else {
+                System.out.print("PASS: ");
+            }
+
+            // Report the fairness of this iteration, if it was measured
+            this.reportFairness();
+
+            // Report the statistics of each thread in this iteration
+            Lock counted = this.lock;
+            if (counted instanceof StatisticsLock) {
+                System.out.println();
+                System.out.println(((StatisticsLock) counted).report());
+                counted = ((StatisticsLock) counted).getLock();
+            }
+
+            // Report the lock counters of this iteration, if they are enabled
+            if (LockCounters.ENABLED && (counted instanceof Instrumented)) {
+                LockCounters counters = ((Instrumented) counted).getCounters();
+                System.out.print("Counters: " + counters + ": ");
+                counters.reset();
+            }
+            this.lock = null;
+            this.lockR = null;
+        }
+
+        /** Print the fairness of the threads, if the fairness benchmark ran
+         * 
+         * The gap of each thread also counts the time from its last
+         * acquisition, or from the start of the iteration if it never
+         * acquired the lock, to the end of the iteration.
+         */
+        private void reportFairness() {
+            long end = System.nanoTime();
+            long[] acquisitions = new long[this.threads.length];
+            long[] maxGaps = new long[this.threads.length];
+            boolean measured = false;
+            for (int tid=0; tid<this.threads.length; tid++) {
+                ThreadState t = this.threads[tid];
+                if (t != null) {
+                    acquisitions[tid] = t.acquisitions;
+                    maxGaps[tid] = Math.max(t.maxGap, end - t.lastAcquired);
+                    measured |= t.acquisitions != 0;
+                }
+            }
+            if (measured) {
+                System.out.println();
+                System.out.println(Fairness.report(this.lockType,
+                    acquisitions, maxGaps));
+            }
+        }
+    }
+
+    /** Per thread state
+     */
+    @State(Scope.Thread)
+    public static class ThreadState {
+
+        /** Thread ID passed to the lock
+         */
+        int tid;
+
+        /** Change to the shared variable per operation (even threads add 1,
+         *  odd threads subtract 1)
+         */
+        int step;
+
+        /** Changes made by this thread to the shared variable in this iteration
+         */
+        long delta;
+
+        /** Acquisitions of this thread in this iteration (fairness benchmark)
+         */
+        long acquisitions;
+
+        /** Time of the last acquisition of this thread, or of the start of the
+         *  iteration if none (fairness benchmark)
+         */
+        long lastAcquired;
+
+        /** Longest time between the start of the iteration or an acquisition
+         *  of this thread and its next acquisition, in nanoseconds (fairness
+         *  benchmark)
+         */
+        long maxGap;
+
+        /** Copies of the lock and workload of the LockState
+         * 
+         * Read on every operation, so they are kept away from the cache line
+         * of the shared variable.
+         */
+        Lock lock;
+        ReentrantLock lockR;
+        int csTokens;
+        int thinkTokens;
+
+        /** Setup iteration variables for benchmark
+         * 
+         * @param lockState Lock state, set up before this state
+         * @param params    Thread parameters (thread index)
+         */
+        @Setup(Level.Iteration)
+        public void doSetupIteration(LockState lockState, ThreadParams params) {
+            this.tid = params.getThreadIndex();
+            this.step = ((this.tid % 2) == 0) ? 1 : -1;
+            this.delta = 0;
+            this.acquisitions = 0;
+            this.lastAcquired = System.nanoTime();
+            this.maxGap = 0;
+            this.lock = lockState.lock;
+            this.lockR = lockState.lockR;
+            this.csTokens = lockState.csTokens;
+            this.thinkTokens = lockState.thinkTokens;
+            lockState.threads[this.tid] = this;
+        }
+    }
+
+    /** Lock throughput benchmark
+     * 
+     * Reports the number of lock, increment/decrement and unlock operations
+     * per second of all the threads.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    public void throughput(LockState lockState, ThreadState threadState) {
+        operation(lockState, threadState);
+    }
+
+    /** Lock average time benchmark
+     * 
+     * Reports the average time in nanoseconds of a lock, increment/decrement
+     * and unlock operation.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public void averageTime(LockState lockState, ThreadState threadState) {
+        operation(lockState, threadState);
+    }
+
+    /** Lock latency benchmark
+     * 
+     * Samples the time in nanoseconds of individual lock, increment/decrement
+     * and unlock operations, and reports their distribution (p50 to p100) for
+     * each lock and number of threads. Reading the clock adds a few tens of
+     * nanoseconds to each sample.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public void latency(LockState lockState, ThreadState threadState) {
+        operation(lockState, threadState);
+    }
+
+    /** Lock fairness benchmark
+     * 
+     * Reports the throughput of all the threads like the throughput
+     * benchmark, and records the acquisitions of each thread and the longest
+     * time it went without acquiring the lock, for the fairness report
+     * printed after each iteration.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    public void fairness(LockState lockState, ThreadState threadState) {
+        operation(lockState, threadState);
+        long now = System.nanoTime();
+        threadState.maxGap = Math.max(threadState.maxGap,
+            now - threadState.lastAcquired);
+        threadState.lastAcquired = now;
+        threadState.acquisitions++;
+    }
+
+    /** Think, then lock, increment/decrement the shared variable, work in
+     *  the critical section and unlock
+     * 
+     * @param lockState     Lock state
+     * @param threadState   State of the calling thread
+     */
+    private static void operation(LockState lockState,
+            ThreadState threadState) {
+        int tid = threadState.tid;
+        Lock lock = threadState.lock;
+        if (threadState.thinkTokens > 0) {
+            Blackhole.consumeCPU(threadState.thinkTokens);
+        }
+        if (lock != null) {
+            lock.lock(tid);
+            criticalSection(lockState, threadState);
+            lock.unlock(tid);
+        } else if (threadState.lockR != null) {
+            threadState.lockR.lock();
+            criticalSection(lockState, threadState);
+            threadState.lockR.unlock();
+        } else {
+            criticalSection(lockState, threadState);
+        }
+        threadState.delta += threadState.step;
+    }
+
+    /** Critical section: increment/decrement the shared variable and work
+     * 
+     * @param lockState     Lock state
+     * @param threadState   State of the calling thread
+     */
+    private static void criticalSection(LockState lockState,
+            ThreadState threadState) {
+        lockState.c += threadState.step;
+        if (threadState.csTokens > 0) {
+            Blackhole.consumeCPU(threadState.csTokens);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+/** JFR event for a lock that was held for a long time
+ */
+
+package ReadWriteRegisterMutexes;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/** JFR event for a lock that was held for a long time
+ * 
+ * Committed by JfrLock on unlock, when the lock was held for at least the hold
+ * threshold of the lock. The stack trace shows the code that released it.
+ */
+@Name("ReadWriteRegisterMutexes.LongHold")
+@Label("Long Hold")
+@Category("Read-Write Register Mutexes")
+@Description("Critical section longer than the threshold")
+@StackTrace(true)
+public final class LongHoldEvent extends Event {
+    @Label("Lock")
+    String lock;
+
+    @Label("Thread ID")
+    int tid;
+
+    @Label("Hold Duration")
+    @Timespan(Timespan.NANOSECONDS)
+    long holdDuration;
+}
@@ -0,0 +1,204 @@
+/** Array of shared long read-write registers
+ */
+
+package ReadWriteRegisterMutexes;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/** Array of shared long read-write registers
+ * 
+ * Same as RegisterArray, but with 64-bit registers, for locks that pack
+ * several values or a set of bits into one register. All registers live in a
+ * single long[] accessed through a VarHandle, and are placed with a
+ * RegisterLayout.
+ * 
+ * The get, set, compareAndSet and bitwise methods are always volatile
+ * (sequentially consistent). The load, store and poll methods use the
+ * MemoryOrdering the array was created with.
+ */
+public final class LongRegisterArray {
+    /** VarHandle used to access the backing array elements
+     */
+    private static final VarHandle REGISTERS
+        = MethodHandles.arrayElementVarHandle(long[].class);
+
+    /** Backing array
+     */
+    private final long[] registers;
+
+    /** Number of registers
+     */
+    private final int length;
+
+    /** Index shift of the layout (0 when packed)
+     */
+    private final int shift;
+
+    /** True if load, store and poll are volatile accesses
+     */
+    private final boolean sequential;
+
+    /** Constructor with SEQUENTIAL memory ordering
+     * 
+     * All registers are initialized to 0.
+     * 
+     * @param length    Number of registers
+     * @param layout    Memory layout of the registers
+     */
+    public LongRegisterArray(int length, RegisterLayout layout) {
+        this(length, layout, MemoryOrdering.SEQUENTIAL);
+    }
+
+    /** Constructor
+     * 
+     * All registers are initialized to 0.
+     * 
+     * @param length    Number of registers
+     * @param layout    Memory layout of the registers
+     * @param ordering  Memory ordering of load, store and poll
+     */
+    public LongRegisterArray(int length, RegisterLayout layout,
+            MemoryOrdering ordering) {
+        if (length < 0) {
+            throw new IllegalArgumentException(
+                "Invalid number of registers: length must be >=0");
+        }
+
+        this.length = length;
+        this.shift = layout.shift(Long.BYTES);
+        this.sequential = (ordering == MemoryOrdering.SEQUENTIAL);
+
+        // Padded layouts add one empty slot before and after the registers
+        if (length > (Integer.MAX_VALUE >> this.shift) - 2) {
+            throw new IllegalArgumentException("Too many registers for the "
+                + layout + " layout: " + length);
+        } else if (this.shift == 0) {
+            this.registers = new long[length];
+        } else {
+            this.registers = new long[(length + 2) << this.shift];
+        }
+    }
+
+    /** Get the number of registers
+     * 
+     * @return Number of registers in the array
+     */
+    public int length() {
+        return this.length;
+    }
+
+    /** Read a register
+     * 
+     * @param i Register index
+     * @return Register value
+     */
+    public long get(int i) {
+        return (long) REGISTERS.getVolatile(this.registers, this.index(i));
+    }
+
+    /** Write a register
+     * 
+     * @param i     Register index
+     * @param value New register value
+     */
+    public void set(int i, long value) {
+        REGISTERS.setVolatile(this.registers, this.index(i), value);
+    }
+
+    /** Read a register with the ordering of the array
+     * 
+     * @param i Register index
+     * @return Register value
+     */
+    public long load(int i) {
+        if (this.sequential) {
+            return (long) REGISTERS.getVolatile(this.registers, this.index(i));
+        }
+        return (long) REGISTERS.getAcquire(this.registers, this.index(i));
+    }
+
+    /** Write a register with the ordering of the array
+     * 
+     * @param i     Register index
+     * @param value New register value
+     */
+    public void store(int i, long value) {
+        if (this.sequential) {
+            REGISTERS.setVolatile(this.registers, this.index(i), value);
+        } else {
+            REGISTERS.setRelease(this.registers, this.index(i), value);
+        }
+    }
+
+    /** Read a register from a busy-wait loop with the ordering of the array
+     * 
+     * As with RegisterArray.poll, a relaxed loop must be followed by
+     * MemoryOrdering.acquireFence.
+     * 
+     * @param i Register index
+     * @return Register value
+     */
+    public long poll(int i) {
+        if (this.sequential) {
+            return (long) REGISTERS.getVolatile(this.registers, this.index(i));
+        }
+        return (long) REGISTERS.getOpaque(this.registers, this.index(i));
+    }
+
+    /** Atomically set a register to value if it currently holds expected
+     * 
+     * @param i         Register index
+     * @param expected  Expected register value
+     * @param value     New register value
+     * @return True if successful, false if the register did not hold expected
+     */
+    public boolean compareAndSet(int i, long expected, long value) {
+        return REGISTERS.compareAndSet(this.registers, this.index(i), expected,
+            value);
+    }
+
+    /** Atomically set the bits of mask in a register
+     * 
+     * @param i     Register index
+     * @param mask  Bits to set
+     * @return Previous register value
+     */
+    public long getAndBitwiseOr(int i, long mask) {
+        return (long) REGISTERS.getAndBitwiseOr(this.registers, this.index(i),
+            mask);
+    }
+
+    /** Atomically keep only the bits of mask in a register
+     * 
+     * @param i     Register index
+     * @param mask  Bits to keep
+     * @return Previous register value
+     */
+    public long getAndBitwiseAnd(int i, long mask) {
+        return (long) REGISTERS.getAndBitwiseAnd(this.registers, this.index(i),
+            mask);
+    }
+
+    /** Reset all the registers to 0
+     * 
+     * Plain writes: no other thread may access the array until it is published
+     * again through a volatile write or a compare and set.
+     */
+    public void clear() {
+        Arrays.fill(this.registers, 0L);
+    }
+
+    /** Get the backing array index of a register
+     * 
+     * @param i Register index
+     * @return Index of register i in the backing array
+     */
+    private int index(int i) {
+        if (this.shift == 0) {
+            return i;
+        }
+        return (i + 1) << this.shift;
+    }
+}
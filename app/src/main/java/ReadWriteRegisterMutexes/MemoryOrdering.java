@@ -0,0 +1,51 @@
+/** Memory orderings for the accesses to shared read-write registers
+ */
+
+package ReadWriteRegisterMutexes;
+
+import java.lang.invoke.VarHandle;
+
+/** Memory orderings for the accesses to shared read-write registers
+ * 
+ * The ordering is chosen per lock instance, and applies to the load, store and
+ * poll methods of its RegisterArrays, and to the fences the lock issues.
+ */
+public enum MemoryOrdering {
+    /** All register accesses are volatile (sequentially consistent)
+     * 
+     * This is how the locks behave with AtomicInteger/AtomicBoolean registers.
+     * Fences are not needed, so fullFence and acquireFence do nothing.
+     */
+    SEQUENTIAL,
+
+    /** Weakest ordering that keeps each lock correct
+     * 
+     * Register loads are acquire loads, stores are release stores and spin
+     * loop reads are opaque reads followed by an acquire fence once the loop
+     * exits. Locks call fullFence only where their algorithm needs store-load
+     * ordering (e.g. after announcing interest in Peterson's algorithm).
+     */
+    RELEASE_ACQUIRE;
+
+    /** Issue a full fence if this ordering needs explicit fences
+     * 
+     * Orders all loads and stores before the fence with all loads and stores
+     * after it, in particular a store before the fence with a load after it.
+     */
+    public void fullFence() {
+        if (this == MemoryOrdering.RELEASE_ACQUIRE) {
+            VarHandle.fullFence();
+        }
+    }
+
+    /** Issue an acquire fence if this ordering needs explicit fences
+     * 
+     * Used after a spin loop of poll reads exits, so that the read that
+     * observed the awaited value acts as an acquire load.
+     */
+    public void acquireFence() {
+        if (this == MemoryOrdering.RELEASE_ACQUIRE) {
+            VarHandle.acquireFence();
+        }
+    }
+}
@@ -5,58 +5,95 @@
  *
  * */
 package ReadWriteRegisterMutexes.OneBit;
+import ReadWriteRegisterMutexes.Instrumented;
 import ReadWriteRegisterMutexes.Lock;
-import org.apache.logging.log4j.Logger;
-import org.apache.logging.log4j.LogManager;
-import java.util.concurrent.atomic.AtomicBoolean;
+import ReadWriteRegisterMutexes.LockCounters;
+import ReadWriteRegisterMutexes.MemoryOrdering;
+import ReadWriteRegisterMutexes.RegisterArray;
+import ReadWriteRegisterMutexes.RegisterLayout;
+import ReadWriteRegisterMutexes.SpinWaitStrategy;
+import ReadWriteRegisterMutexes.WaitStrategy;
 
-public class OneBitLock implements Lock {
+public class OneBitLock implements Lock, Instrumented {
 
     /* Number of processes / threads */
     private int N;
 
-    /* N shared bits */
-    private AtomicBoolean b[];
+    /* N shared bits (0 is false, 1 is true) */
+    private RegisterArray b;
 
-    private static final Logger log = LogManager.getRootLogger();
+    /* What waiting processes do in each busy-wait loop iteration */
+    private WaitStrategy waitStrategy;
+
+    /* Memory ordering of the shared register accesses */
+    private MemoryOrdering ordering;
+
+    /* Spin, restart and acquisition counters of each process */
+    private LockCounters counters;
 
     public OneBitLock(int n) {
+        this(n, RegisterLayout.PACKED);
+    }
+
+    /* layout sets how the N shared bits are placed in memory */
+    public OneBitLock(int n, RegisterLayout layout) {
+        this(n, layout, new SpinWaitStrategy());
+    }
+
+    /* waitStrategy sets what the busy-wait loops do while waiting */
+    public OneBitLock(int n, RegisterLayout layout, WaitStrategy waitStrategy) {
+        this(n, layout, waitStrategy, MemoryOrdering.SEQUENTIAL);
+    }
+
+    /* ordering sets the memory ordering of the shared register accesses */
+    public OneBitLock(int n, RegisterLayout layout, WaitStrategy waitStrategy,
+                      MemoryOrdering ordering) {
         this.N = n;
-        b = new AtomicBoolean[n];
-        for(int i=0; i<this.N; i++){
-            b[i] = new AtomicBoolean(false);
-        }
+        b = new RegisterArray(n, layout, ordering);
+        this.waitStrategy = waitStrategy;
+        this.ordering = ordering;
+        this.counters = new LockCounters(n);
     }
 
     @Override
     public void lock(int pid) {
-        log.debug("Enter lock" );
-        while(b[pid].get() == false) {
-            b[pid].set(true); // Process i indicates that its interested in critical section
+        while(b.load(pid) == 0) {
+            b.store(pid, 1); // Process i indicates that its interested in critical section
+            ordering.fullFence(); // Our bit must be visible before we read the others (store-load)
             int j = 0;
-            while ((b[pid].get() == true) && j < pid) { // Check the bits of all the processes that are less than its process id
-                if (b[j].get() == true) {
-                    b[pid].set(false);  // Set to false so that the outer do - while starts again
-                    while (b[j].get() == true) { // If some other process j's bit is true then wait
-                        ; //no-op
-                        log.warn("while 1. Waiting for bit of process " + j + " to be false" );
+            while ((b.load(pid) == 1) && j < pid) { // Check the bits of all the processes that are less than its process id
+                if (b.load(j) == 1) {
+                    b.store(pid, 0);  // Set to false so that the outer do - while starts again
+                    int spins = 0;
+                    while (b.poll(j) == 1) { // If some other process j's bit is true then wait
+                        spins = waitStrategy.idle(spins);
+                        counters.spin(pid);
                     }
+                    ordering.acquireFence();
+                    counters.restart(pid);
                 }
                 j++;
             }
         } // Process i exists the loop if other bits are false but its one bit is true
 
         for(int j=pid+1; j<this.N; j++){ // Check the bits of all processes that are higher than current process id
-            while(b[j].get() == true){  // Wait till the other process's bit is false
-                ;//wait no-op
-                log.warn("while 2. Waiting for bit of process " + j + " to be false" );
+            int spins = 0;
+            while(b.poll(j) == 1){  // Wait till the other process's bit is false
+                spins = waitStrategy.idle(spins);
+                counters.spin(pid);
             }
+            ordering.acquireFence();
         }
-        log.debug("Exit lock" );
+        counters.acquire(pid);
     }
 
     @Override
     public void unlock(int pid) {
-        b[pid].set(false);
+        b.store(pid, 0); // Release, so the next process sees the critical section writes
+    }
+
+    @Override
+    public LockCounters getCounters() {
+        return counters;
     }
 }
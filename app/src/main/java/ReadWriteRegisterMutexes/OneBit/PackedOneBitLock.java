@@ -0,0 +1,125 @@
+/*
+ * One-Bit algorithm with the N shared bits packed into 64-bit words.
+ * Same algorithm as OneBitLock, but bit i is bit (i % 64) of word i / 64, so
+ * the lock uses N bits of shared memory (rounded up to whole words) and each
+ * scan checks 64 processes with one read and a mask.
+ *
+ * Several processes write each word, so a process sets and clears its bit
+ * with atomic read-modify-write operations (getAndBitwiseOr and
+ * getAndBitwiseAnd) instead of writing a register. This makes it a
+ * non-register variant of the One-Bit algorithm, which only needs single-writer
+ * read-write registers, as OneBitLock uses.
+ *
+ * */
+package ReadWriteRegisterMutexes.OneBit;
+import ReadWriteRegisterMutexes.Instrumented;
+import ReadWriteRegisterMutexes.Lock;
+import ReadWriteRegisterMutexes.LockCounters;
+import ReadWriteRegisterMutexes.LongRegisterArray;
+import ReadWriteRegisterMutexes.MemoryOrdering;
+import ReadWriteRegisterMutexes.RegisterLayout;
+import ReadWriteRegisterMutexes.SpinWaitStrategy;
+import ReadWriteRegisterMutexes.WaitStrategy;
+
+public class PackedOneBitLock implements Lock, Instrumented {
+
+    /* Number of processes / threads */
+    private int N;
+
+    /* N shared bits packed in words, set and cleared with atomic bitwise
+     * updates so processes sharing a word do not overwrite each other */
+    private LongRegisterArray b;
+
+    /* Spin, restart and acquisition counters of each process */
+    private LockCounters counters;
+
+    /* What waiting processes do in each busy-wait loop iteration */
+    private WaitStrategy waitStrategy;
+
+    /* Memory ordering of the shared register accesses */
+    private MemoryOrdering ordering;
+
+    public PackedOneBitLock(int n) {
+        this(n, RegisterLayout.PACKED);
+    }
+
+    /* layout sets how the words are placed in memory */
+    public PackedOneBitLock(int n, RegisterLayout layout) {
+        this(n, layout, new SpinWaitStrategy());
+    }
+
+    /* waitStrategy sets what the busy-wait loops do while waiting */
+    public PackedOneBitLock(int n, RegisterLayout layout, WaitStrategy waitStrategy) {
+        this(n, layout, waitStrategy, MemoryOrdering.SEQUENTIAL);
+    }
+
+    /* ordering sets the memory ordering of the shared register accesses */
+    public PackedOneBitLock(int n, RegisterLayout layout, WaitStrategy waitStrategy,
+                            MemoryOrdering ordering) {
+        this.N = n;
+        b = new LongRegisterArray((n + 63) >>> 6, layout, ordering);
+        this.waitStrategy = waitStrategy;
+        this.ordering = ordering;
+        this.counters = new LockCounters(n);
+    }
+
+    @Override
+    public void lock(int pid) {
+        int w = pid >>> 6;
+        long bit = 1L << pid;
+        boolean restart = true;
+        while (restart) {
+            restart = false;
+            // Process i indicates that its interested in critical section. The
+            // atomic update is a full fence, so our bit is visible before we
+            // read the others (store-load)
+            b.getAndBitwiseOr(w, bit);
+
+            // Check the bits of all the processes that are less than its process id
+            for (int k = 0; k <= w; k++) {
+                long lower = b.load(k) & ((k < w) ? -1L : bit - 1);
+                if (lower != 0) {
+                    long other = Long.lowestOneBit(lower);
+                    b.getAndBitwiseAnd(w, ~bit); // Set to false so that we start again
+                    int spins = 0;
+                    while ((b.poll(k) & other) != 0) { // If some other process j's bit is true then wait
+                        spins = waitStrategy.idle(spins);
+                        counters.spin(pid);
+                    }
+                    ordering.acquireFence();
+                    counters.restart(pid);
+                    restart = true;
+                    break;
+                }
+            }
+        } // Process i exists the loop if other bits are false but its one bit is true
+
+        // Check the bits of all processes that are higher than current process
+        // id, in order, and wait till each of them is false
+        for (int k = w; k < b.length(); k++) {
+            long higher = (k > w) ? -1L : -(bit << 1);
+            long set;
+            while ((set = b.load(k) & higher) != 0) {
+                long other = Long.lowestOneBit(set);
+                int spins = 0;
+                while ((b.poll(k) & other) != 0) {
+                    spins = waitStrategy.idle(spins);
+                    counters.spin(pid);
+                }
+                ordering.acquireFence();
+                higher &= -(other << 1); // Only the processes after this one
+            }
+        }
+        counters.acquire(pid);
+    }
+
+    @Override
+    public void unlock(int pid) {
+        b.getAndBitwiseAnd(pid >>> 6, ~(1L << pid)); // Volatile, so the next process sees the critical section writes
+    }
+
+    @Override
+    public LockCounters getCounters() {
+        return counters;
+    }
+}
@@ -0,0 +1,178 @@
+/** Report of the locks with more threads than cores
+ */
+
+package ReadWriteRegisterMutexes;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/** Report of the locks with more threads than cores
+ * 
+ * Runs LockThroughputBenchmarks.throughput for every lock and wait strategy
+ * with 1, 2 and 4 times as many threads as available processors, with the
+ * CpuTimeProfiler, and prints the throughput and CPU use of each. Pure spin
+ * locks collapse when the thread holding them is preempted, and the report
+ * shows which locks keep their throughput, and at what CPU cost.
+ * 
+ * Run with:
+ * 
+ *     ./gradlew run --args='oversubscription'
+ * 
+ * Any other arguments are passed to JMH, for example -wi 2 -i 5 to shorten the
+ * runs.
+ */
+public class OversubscriptionReport {
+    /** Read-write register lock types, run with every wait strategy
+     */
+    static final String[] LOCK_TYPES = {"TOURNAMENT", "COLORED_BAKERY",
+        "ONE_BIT", "ONE_BIT_PACKED", "ADAPTIVE", "FAST_PATH"};
+
+    /** Lock type run once, as it has no wait strategy
+     */
+    static final String BASELINE = "REENTRANT";
+
+    /** Threads per available processor
+     */
+    static final int[] MULTIPLIERS = {1, 2, 4};
+
+    /** Run the benchmarks and print the report
+     * 
+     * @param args  JMH command line options
+     */
+    public static void main(String[] args)
+            throws RunnerException, CommandLineOptionException {
+        Options parent = new CommandLineOptions(args);
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        // Results by key(multiplier, lock, wait strategy)
+        Map<String, RunResult> results = new HashMap<>();
+        for (int multiplier : MULTIPLIERS) {
+            results.putAll(run(parent, multiplier, cores * multiplier,
+                new String[] {BASELINE},
+                new String[] {WaitStrategyType.SPIN.name()}));
+            results.putAll(run(parent, multiplier, cores * multiplier,
+                LOCK_TYPES, names(WaitStrategyType.values())));
+        }
+
+        System.out.println(report(cores, results));
+    }
+
+    /** Run the throughput benchmark of a set of locks
+     * 
+     * @param parent        JMH command line options
+     * @param multiplier    Threads per available processor
+     * @param threads       Number of threads
+     * @param lockTypes     Lock types to run
+     * @param waitStrategies    Wait strategies to run
+     * @return Results by key(multiplier, lock, wait strategy)
+     */
+    private static Map<String, RunResult> run(Options parent, int multiplier,
+            int threads, String[] lockTypes, String[] waitStrategies)
+            throws RunnerException {
+        Options options = new OptionsBuilder()
+            .parent(parent)
+            .include(LockThroughputBenchmarks.class.getSimpleName()
+                + ".throughput")
+            .threads(threads)
+            .param("lockType", lockTypes)
+            .param("waitStrategy", waitStrategies)
+            .addProfiler(CpuTimeProfiler.class)
+            .build();
+        Collection<RunResult> runResults = new Runner(options).run();
+
+        Map<String, RunResult> results = new HashMap<>();
+        for (RunResult r : runResults) {
+            results.put(key(multiplier, r.getParams().getParam("lockType"),
+                r.getParams().getParam("waitStrategy")), r);
+        }
+        return results;
+    }
+
+    /** Build the report
+     * 
+     * @param cores     Available processors
+     * @param results   Results by key(multiplier, lock, wait strategy)
+     * @return Table of throughput and CPU use by lock and number of threads
+     */
+    static String report(int cores, Map<String, RunResult> results) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Oversubscription (").append(cores)
+            .append(" available processors): ops/s, CPU cores used, CPU ns/op\n");
+        sb.append(String.format("%15s %6s", "lock", "wait"));
+        for (int multiplier : MULTIPLIERS) {
+            sb.append(String.format(" %33s", multiplier + "x ("
+                + (cores * multiplier) + " threads)"));
+        }
+        sb.append(String.format(" %10s\n", "4x/1x"));
+
+        row(sb, results, BASELINE, WaitStrategyType.SPIN.name(), "-");
+        for (String lockType : LOCK_TYPES) {
+            for (WaitStrategyType waitStrategy : WaitStrategyType.values()) {
+                row(sb, results, lockType, waitStrategy.name(),
+                    waitStrategy.name());
+            }
+        }
+        return sb.toString();
+    }
+
+    /** Add the row of a lock and wait strategy to the report
+     */
+    private static void row(StringBuilder sb, Map<String, RunResult> results,
+            String lockType, String waitStrategy, String waitLabel) {
+        sb.append(String.format("%15s %6s", lockType, waitLabel));
+        double first = Double.NaN;
+        double last = Double.NaN;
+        for (int multiplier : MULTIPLIERS) {
+            RunResult r = results.get(key(multiplier, lockType, waitStrategy));
+            if (r == null) {
+                sb.append(String.format(" %33s", "-"));
+                last = Double.NaN;
+                continue;
+            }
+            double score = r.getPrimaryResult().getScore();
+            if (Double.isNaN(first)) {
+                first = score;
+            }
+            last = score;
+            sb.append(String.format(" %13.4g %7s %11s", score,
+                secondary(r, "cpu.utilization", "%.2f"),
+                secondary(r, "cpu.time.norm", "%.1f")));
+        }
+        sb.append(String.format(" %10.2f\n", last / first));
+    }
+
+    /** Format a secondary result
+     * 
+     * @return Formatted score, or - if it was not reported
+     */
+    private static String secondary(RunResult r, String label, String format) {
+        Result<?> result = r.getSecondaryResults().get(label);
+        return (result == null) ? "-" : String.format(format, result.getScore());
+    }
+
+    /** Names of the wait strategies
+     */
+    private static String[] names(WaitStrategyType[] waitStrategies) {
+        String[] names = new String[waitStrategies.length];
+        for (int i=0; i<waitStrategies.length; i++) {
+            names[i] = waitStrategies[i].name();
+        }
+        return names;
+    }
+
+    /** Key of a result
+     */
+    static String key(int multiplier, String lockType, String waitStrategy) {
+        return multiplier + "/" + lockType + "/" + waitStrategy;
+    }
+}
@@ -0,0 +1,100 @@
+/** Spin then park with exponential backoff wait strategy
+ */
+
+package ReadWriteRegisterMutexes;
+
+import java.util.concurrent.locks.LockSupport;
+
+/** Spin then park with exponential backoff wait strategy
+ * 
+ * The waiting thread spins for a bounded number of iterations, and then parks
+ * with LockSupport.parkNanos. The first park lasts minParkNanos, and every
+ * following one doubles it up to maxParkNanos. None of the locks unpark
+ * waiters, so a parked thread only notices the lock is free once its park
+ * times out, but it does not use any processor time while parked.
+ */
+public class ParkWaitStrategy implements WaitStrategy {
+    /** Default number of iterations to spin before parking
+     */
+    public static final int DEFAULT_MAX_SPINS = 100;
+
+    /** Default duration of the first park in nanoseconds
+     */
+    public static final long DEFAULT_MIN_PARK_NANOS = 1000L;
+
+    /** Default maximum duration of a park in nanoseconds
+     */
+    public static final long DEFAULT_MAX_PARK_NANOS = 1000000L;
+
+    /** Number of iterations to spin before parking
+     */
+    private final int maxSpins;
+
+    /** Duration of the first park in nanoseconds
+     */
+    private final long minParkNanos;
+
+    /** Maximum duration of a park in nanoseconds
+     */
+    private final long maxParkNanos;
+
+    /** Number of doublings after which parks last maxParkNanos
+     */
+    private final int maxBackoff;
+
+    /** Constructor with the default spins and park durations
+     */
+    public ParkWaitStrategy() {
+        this(ParkWaitStrategy.DEFAULT_MAX_SPINS,
+            ParkWaitStrategy.DEFAULT_MIN_PARK_NANOS,
+            ParkWaitStrategy.DEFAULT_MAX_PARK_NANOS);
+    }
+
+    /** Constructor
+     * 
+     * @param maxSpins      Number of iterations to spin before parking
+     * @param minParkNanos  Duration of the first park in nanoseconds
+     * @param maxParkNanos  Maximum duration of a park in nanoseconds
+     */
+    public ParkWaitStrategy(int maxSpins, long minParkNanos, long maxParkNanos) {
+        if (maxSpins < 0) {
+            throw new IllegalArgumentException(
+                "Invalid number of spins: maxSpins must be >=0");
+        }
+        if ((minParkNanos <= 0) || (maxParkNanos < minParkNanos)) {
+            throw new IllegalArgumentException("Invalid park durations: must be "
+                + "0 < minParkNanos <= maxParkNanos");
+        }
+
+        this.maxSpins = maxSpins;
+        this.minParkNanos = minParkNanos;
+        this.maxParkNanos = maxParkNanos;
+
+        // Find how many doublings it takes to reach maxParkNanos, which is the
+        // bit length of (maxParkNanos - 1) / minParkNanos. Shifting until
+        // minParkNanos reaches it would overflow for large maxParkNanos.
+        this.maxBackoff = 64 - Long.numberOfLeadingZeros(
+            (maxParkNanos - 1) / minParkNanos);
+    }
+
+    /** Wait for one iteration of a busy-wait loop
+     * 
+     * @param iteration Number of idle calls already made in the current wait
+     * @return Value to pass as iteration on the next call
+     */
+    public int idle(int iteration) {
+        if (iteration < this.maxSpins) {
+            Thread.onSpinWait();
+            return iteration + 1;
+        }
+
+        // Park for minParkNanos * 2^backoff, capped at maxParkNanos
+        int backoff = iteration - this.maxSpins;
+        if (backoff >= this.maxBackoff) {
+            LockSupport.parkNanos(this.maxParkNanos);
+            return iteration;   // Stop counting to avoid overflowing iteration
+        }
+        LockSupport.parkNanos(this.minParkNanos << backoff);
+        return iteration + 1;
+    }
+}
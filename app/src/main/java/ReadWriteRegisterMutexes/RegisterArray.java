@@ -0,0 +1,194 @@
+/** Array of shared integer read-write registers
+ */
+
+package ReadWriteRegisterMutexes;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/** Array of shared integer read-write registers
+ * 
+ * All registers live in a single int[], and are accessed through a VarHandle,
+ * so reading a register is one load from the array instead of a pointer hop to
+ * an individually allocated AtomicInteger/AtomicBoolean. Where each register
+ * sits in the backing array is set by the RegisterLayout, so the same lock
+ * code can run on packed or cache-line padded registers.
+ * 
+ * Boolean registers are stored as 0 (false) and 1 (true).
+ * 
+ * The get, set and compareAndSet methods are always volatile (sequentially
+ * consistent), like the AtomicInteger methods they replace. The load, store and
+ * poll methods use the MemoryOrdering the array was created with, so a lock can
+ * run relaxed without changing its code.
+ */
+public final class RegisterArray {
+    /** VarHandle used to access the backing array elements
+     */
+    private static final VarHandle REGISTERS
+        = MethodHandles.arrayElementVarHandle(int[].class);
+
+    /** Backing array
+     */
+    private final int[] registers;
+
+    /** Number of registers
+     */
+    private final int length;
+
+    /** Index shift of the layout (0 when packed)
+     */
+    private final int shift;
+
+    /** True if load, store and poll are volatile accesses
+     */
+    private final boolean sequential;
+
+    /** Constructor with SEQUENTIAL memory ordering
+     * 
+     * All registers are initialized to 0.
+     * 
+     * @param length    Number of registers
+     * @param layout    Memory layout of the registers
+     */
+    public RegisterArray(int length, RegisterLayout layout) {
+        this(length, layout, MemoryOrdering.SEQUENTIAL);
+    }
+
+    /** Constructor
+     * 
+     * All registers are initialized to 0.
+     * 
+     * @param length    Number of registers
+     * @param layout    Memory layout of the registers
+     * @param ordering  Memory ordering of load, store and poll
+     */
+    public RegisterArray(int length, RegisterLayout layout,
+            MemoryOrdering ordering) {
+        if (length < 0) {
+            throw new IllegalArgumentException(
+                "Invalid number of registers: length must be >=0");
+        }
+
+        this.length = length;
+        this.shift = layout.shift(Integer.BYTES);
+        this.sequential = (ordering == MemoryOrdering.SEQUENTIAL);
+
+        // Padded layouts add one empty slot before and after the registers
+        if (length > (Integer.MAX_VALUE >> this.shift) - 2) {
+            throw new IllegalArgumentException("Too many registers for the "
+                + layout + " layout: " + length);
+        } else if (this.shift == 0) {
+            this.registers = new int[length];
+        } else {
+            this.registers = new int[(length + 2) << this.shift];
+        }
+    }
+
+    /** Get the number of registers
+     * 
+     * @return Number of registers in the array
+     */
+    public int length() {
+        return this.length;
+    }
+
+    /** Read a register
+     * 
+     * @param i Register index
+     * @return Register value
+     */
+    public int get(int i) {
+        return (int) REGISTERS.getVolatile(this.registers, this.index(i));
+    }
+
+    /** Write a register
+     * 
+     * @param i     Register index
+     * @param value New register value
+     */
+    public void set(int i, int value) {
+        REGISTERS.setVolatile(this.registers, this.index(i), value);
+    }
+
+    /** Read a register with the ordering of the array
+     * 
+     * Volatile read with SEQUENTIAL ordering, acquire read with
+     * RELEASE_ACQUIRE ordering.
+     * 
+     * @param i Register index
+     * @return Register value
+     */
+    public int load(int i) {
+        if (this.sequential) {
+            return (int) REGISTERS.getVolatile(this.registers, this.index(i));
+        }
+        return (int) REGISTERS.getAcquire(this.registers, this.index(i));
+    }
+
+    /** Write a register with the ordering of the array
+     * 
+     * Volatile write with SEQUENTIAL ordering, release write with
+     * RELEASE_ACQUIRE ordering.
+     * 
+     * @param i     Register index
+     * @param value New register value
+     */
+    public void store(int i, int value) {
+        if (this.sequential) {
+            REGISTERS.setVolatile(this.registers, this.index(i), value);
+        } else {
+            REGISTERS.setRelease(this.registers, this.index(i), value);
+        }
+    }
+
+    /** Read a register from a busy-wait loop with the ordering of the array
+     * 
+     * Volatile read with SEQUENTIAL ordering, opaque read with RELEASE_ACQUIRE
+     * ordering. Opaque reads are not hoisted out of the loop, but they do not
+     * order other accesses, so the loop must be followed by
+     * MemoryOrdering.acquireFence.
+     * 
+     * @param i Register index
+     * @return Register value
+     */
+    public int poll(int i) {
+        if (this.sequential) {
+            return (int) REGISTERS.getVolatile(this.registers, this.index(i));
+        }
+        return (int) REGISTERS.getOpaque(this.registers, this.index(i));
+    }
+
+    /** Atomically set a register to value if it currently holds expected
+     * 
+     * @param i         Register index
+     * @param expected  Expected register value
+     * @param value     New register value
+     * @return True if successful, false if the register did not hold expected
+     */
+    public boolean compareAndSet(int i, int expected, int value) {
+        return REGISTERS.compareAndSet(this.registers, this.index(i), expected,
+            value);
+    }
+
+    /** Reset all the registers to 0
+     * 
+     * Plain writes: no other thread may access the array until it is published
+     * again through a volatile write or a compare and set.
+     */
+    public void clear() {
+        Arrays.fill(this.registers, 0);
+    }
+
+    /** Get the backing array index of a register
+     * 
+     * @param i Register index
+     * @return Index of register i in the backing array
+     */
+    private int index(int i) {
+        if (this.shift == 0) {
+            return i;
+        }
+        return (i + 1) << this.shift;
+    }
+}
@@ -0,0 +1,54 @@
+/** Memory layouts for arrays of shared read-write registers
+ */
+
+package ReadWriteRegisterMutexes;
+
+/** Memory layouts for arrays of shared read-write registers
+ * 
+ * The layout decides how far apart consecutive registers of a RegisterArray
+ * are placed in memory. It can be picked per lock instance.
+ */
+public enum RegisterLayout {
+    /** Registers are stored next to each other in a single primitive array
+     * 
+     * This is the most compact layout, and scans over many registers touch
+     * the fewest cache lines. Registers written by different threads may share
+     * a cache line, though.
+     */
+    PACKED(0),
+
+    /** Each register is stored on its own cache line
+     * 
+     * Registers are 128 bytes apart (two 64-byte lines, so the adjacent line
+     * prefetcher does not pair them either), and the array is padded at both
+     * ends. Writes to one register never invalidate the line of another one.
+     */
+    PADDED(128);
+
+    /** Distance in bytes between consecutive registers (0 if packed)
+     */
+    private final int paddingBytes;
+
+    /** Constructor
+     * 
+     * @param paddingBytes  Distance in bytes between consecutive registers
+     */
+    private RegisterLayout(int paddingBytes) {
+        this.paddingBytes = paddingBytes;
+    }
+
+    /** Get the index shift for registers of a given size
+     * 
+     * Register i is stored at index (i << shift) + (1 << shift) of the backing
+     * array, so that the first register is padded from the array header too.
+     * 
+     * @param registerBytes Size of one register in bytes (power of 2)
+     * @return log2 of the number of array elements per register slot
+     */
+    int shift(int registerBytes) {
+        if (this.paddingBytes <= registerBytes) {
+            return 0;
+        }
+        return Integer.numberOfTrailingZeros(this.paddingBytes / registerBytes);
+    }
+}
@@ -0,0 +1,98 @@
+/** Bounded ring buffer critical section workload
+ */
+
+package ReadWriteRegisterMutexes;
+
+import java.util.Arrays;
+
+/** Bounded ring buffer critical section workload
+ * 
+ * Even threads enqueue into a bounded ring buffer, and odd threads dequeue
+ * from it. Enqueue skips when the buffer is full and dequeue when it is empty,
+ * like a try-offer and try-poll, so a run always finishes. Every element is
+ * its sequence number, so a dequeue checks that it got the oldest element.
+ */
+public class RingBufferCriticalSection implements CriticalSection {
+    /** Default number of slots (a power of 2)
+     */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    /** Slots of the buffer
+     */
+    private final long[] slots;
+
+    /** Sequence numbers of the next dequeue and enqueue
+     */
+    private long head;
+    private long tail;
+
+    /** Number of dequeues that did not get the oldest element, or overruns
+     */
+    private long violations;
+
+    /** Constructor with the default capacity
+     */
+    public RingBufferCriticalSection() {
+        this(RingBufferCriticalSection.DEFAULT_CAPACITY);
+    }
+
+    /** Constructor
+     * 
+     * @param capacity  Number of slots (a power of 2 >=1)
+     */
+    public RingBufferCriticalSection(int capacity) {
+        if ((capacity < 1) || (Integer.bitCount(capacity) != 1)) {
+            throw new IllegalArgumentException(
+                "Invalid capacity: capacity must be a power of 2 >=1");
+        }
+        this.slots = new long[capacity];
+        this.reset();
+    }
+
+    /** Enqueue or dequeue an element
+     * 
+     * @param tid   Thread ID
+     * @param add   True to enqueue, False to dequeue
+     */
+    public void run(int tid, boolean add) {
+        int mask = this.slots.length - 1;
+        long size = this.tail - this.head;
+        if ((size < 0) || (size > this.slots.length)) {
+            this.violations++;
+        } else if (add) {
+            if (size < this.slots.length) {
+                this.slots[(int) this.tail & mask] = this.tail;
+                this.tail++;
+            }
+        } else if (size > 0) {
+            if (this.slots[(int) this.head & mask] != this.head) {
+                this.violations++;
+            }
+            this.head++;
+        }
+    }
+
+    /** Empty the buffer
+     */
+    public void reset() {
+        Arrays.fill(this.slots, -1);
+        this.head = 0;
+        this.tail = 0;
+        this.violations = 0;
+    }
+
+    /** Check that every dequeue got the oldest element
+     * 
+     * @return null if the invariants hold, or a description of the error
+     */
+    public String check() {
+        if (this.violations != 0) {
+            return this.violations + " out of order dequeues or overruns";
+        }
+        if ((this.tail - this.head < 0)
+                || (this.tail - this.head > this.slots.length)) {
+            return "size " + (this.tail - this.head) + " out of bounds";
+        }
+        return null;
+    }
+}
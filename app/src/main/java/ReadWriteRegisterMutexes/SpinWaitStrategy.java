@@ -0,0 +1,23 @@
+/** Pure spin wait strategy
+ */
+
+package ReadWriteRegisterMutexes;
+
+/** Pure spin wait strategy
+ * 
+ * The waiting thread never gives up the processor. Each iteration calls
+ * Thread.onSpinWait, which lets the processor relax the spin loop (e.g. the
+ * x86 PAUSE instruction). This is the fastest strategy while there are at
+ * least as many cores as threads.
+ */
+public class SpinWaitStrategy implements WaitStrategy {
+    /** Wait for one iteration of a busy-wait loop
+     * 
+     * @param iteration Number of idle calls already made in the current wait
+     * @return Value to pass as iteration on the next call
+     */
+    public int idle(int iteration) {
+        Thread.onSpinWait();
+        return iteration + 1;
+    }
+}
@@ -0,0 +1,374 @@
+/** Lock decorator that records contention statistics
+ */
+
+package ReadWriteRegisterMutexes;
+
+import java.util.Arrays;
+
+/** Lock decorator that records contention statistics
+ * 
+ * Wraps any Lock and records, for each thread, the number of acquisitions, the
+ * time spent waiting in lock, and the time the lock was held between lock and
+ * unlock. Times are also counted in histograms with power of 2 buckets of
+ * nanoseconds, which give p50, p99 and p99.9 within a factor of 2, and the
+ * exact maximum.
+ * 
+ * Each thread writes only its own statistics, stored as plain longs in a block
+ * of a shared array that is padded away from the blocks of the other threads,
+ * so recording neither allocates nor writes shared cache lines. The blocks are
+ * merged when a snapshot is taken. Snapshots taken while threads run are
+ * approximate, and exact once the threads have been joined.
+ */
+public class StatisticsLock implements Lock {
+    /** Number of histogram buckets
+     * 
+     * Bucket b counts times t with 2^(b-1) <= t < 2^b nanoseconds (bucket 0
+     * counts 0).
+     */
+    public static final int BUCKETS = 64;
+
+    /** Offsets of the statistics in the block of a thread
+     */
+    private static final int ACQUISITIONS = 0;
+    private static final int WAIT_TOTAL = 1;
+    private static final int HOLD_TOTAL = 2;
+    private static final int WAIT_MAX = 3;
+    private static final int HOLD_MAX = 4;
+    private static final int LOCKED_AT = 5;
+    private static final int WAIT_BUCKETS = 16;
+    private static final int HOLD_BUCKETS = WAIT_BUCKETS + BUCKETS;
+
+    /** Number of longs in the block of a thread, including 128 bytes of padding
+     */
+    private static final int BLOCK = HOLD_BUCKETS + BUCKETS + 16;
+
+    /** Name of the lock in reports
+     */
+    private final String name;
+
+    /** Lock being decorated
+     */
+    private final Lock lock;
+
+    /** Number of threads
+     */
+    private final int numThreads;
+
+    /** Statistics of all threads, one block per thread after 128 bytes of
+     *  padding
+     */
+    private final long[] stats;
+
+    /** Constructor
+     * 
+     * @param lock          Lock to decorate
+     * @param numThreads    Number of threads using the lock
+     */
+    public StatisticsLock(Lock lock, int numThreads) {
+        this(lock.getClass().getSimpleName(), lock, numThreads);
+    }
+
+    /** Constructor
+     * 
+     * @param name          Name of the lock in reports
+     * @param lock          Lock to decorate
+     * @param numThreads    Number of threads using the lock
+     */
+    public StatisticsLock(String name, Lock lock, int numThreads) {
+        if (numThreads <= 0) {
+            throw new IllegalArgumentException(
+                "Invalid number of threads: numThreads must be >0");
+        }
+        this.name = name;
+        this.lock = lock;
+        this.numThreads = numThreads;
+        this.stats = new long[16 + numThreads * BLOCK];
+    }
+
+    /** Lock or critical section entry protocol method of mutex
+     * 
+     * @param tid Thread ID
+     */
+    public void lock(int tid) {
+        long start = System.nanoTime();
+        this.lock.lock(tid);
+        long end = System.nanoTime();
+
+        int base = this.base(tid);
+        this.stats[base + ACQUISITIONS]++;
+        this.record(base, WAIT_TOTAL, WAIT_MAX, WAIT_BUCKETS, end - start);
+        this.stats[base + LOCKED_AT] = end;
+    }
+
+    /** Unlock or critical section exit protocol method of mutex
+     * 
+     * @param tid Thread ID
+     */
+    public void unlock(int tid) {
+        int base = this.base(tid);
+        this.record(base, HOLD_TOTAL, HOLD_MAX, HOLD_BUCKETS,
+            System.nanoTime() - this.stats[base + LOCKED_AT]);
+        this.lock.unlock(tid);
+    }
+
+    /** Get the decorated lock
+     * 
+     * @return Lock being decorated
+     */
+    public Lock getLock() {
+        return this.lock;
+    }
+
+    /** Get the name of the lock
+     * 
+     * @return Name of the lock in reports
+     */
+    public String getName() {
+        return this.name;
+    }
+
+    /** Get the number of threads
+     * 
+     * @return Number of threads using the lock
+     */
+    public int getNumThreads() {
+        return this.numThreads;
+    }
+
+    /** Take a snapshot of the statistics of all threads
+     * 
+     * @return Merged statistics of all threads
+     */
+    public Snapshot snapshot() {
+        Snapshot snapshot = new Snapshot();
+        for (int tid=0; tid<this.numThreads; tid++) {
+            this.merge(tid, snapshot);
+        }
+        return snapshot;
+    }
+
+    /** Take a snapshot of the statistics of a thread
+     * 
+     * @param tid Thread ID
+     * @return Statistics of the thread
+     */
+    public Snapshot snapshot(int tid) {
+        Snapshot snapshot = new Snapshot();
+        this.merge(tid, snapshot);
+        return snapshot;
+    }
+
+    /** Reset the statistics of all threads
+     * 
+     * Must not be called while threads are using the lock.
+     */
+    public void reset() {
+        Arrays.fill(this.stats, 0);
+    }
+
+    /** Report of the statistics of all threads, and of each thread that used
+     *  the lock
+     * 
+     * @return Multi-line report
+     */
+    public String report() {
+        StringBuilder report = new StringBuilder();
+        report.append(this.name).append(": ").append(this.snapshot());
+        for (int tid=0; tid<this.numThreads; tid++) {
+            Snapshot snapshot = this.snapshot(tid);
+            if (snapshot.getAcquisitions() > 0) {
+                report.append(System.lineSeparator()).append("  T").append(tid)
+                    .append(": ").append(snapshot);
+            }
+        }
+        return report.toString();
+    }
+
+    /** Summary of the statistics of all threads
+     * 
+     * @return Name of the lock and merged statistics
+     */
+    @Override
+    public String toString() {
+        return this.name + ": " + this.snapshot();
+    }
+
+    /** Record a time in the block of a thread
+     * 
+     * @param base      Start of the block of the thread
+     * @param total     Offset of the total time
+     * @param max       Offset of the maximum time
+     * @param buckets   Offset of the histogram
+     * @param nanos     Time in nanoseconds
+     */
+    private void record(int base, int total, int max, int buckets,
+            long nanos) {
+        if (nanos < 0) {
+            nanos = 0;  // nanoTime is monotonic, but do not trust it blindly
+        }
+        this.stats[base + total] += nanos;
+        if (nanos > this.stats[base + max]) {
+            this.stats[base + max] = nanos;
+        }
+        this.stats[base + buckets + bucket(nanos)]++;
+    }
+
+    /** Add the statistics of a thread to a snapshot
+     * 
+     * @param tid       Thread ID
+     * @param snapshot  Snapshot to add to
+     */
+    private void merge(int tid, Snapshot snapshot) {
+        int base = this.base(tid);
+        snapshot.acquisitions += this.stats[base + ACQUISITIONS];
+        snapshot.waitTotal += this.stats[base + WAIT_TOTAL];
+        snapshot.holdTotal += this.stats[base + HOLD_TOTAL];
+        snapshot.waitMax = Math.max(snapshot.waitMax,
+            this.stats[base + WAIT_MAX]);
+        snapshot.holdMax = Math.max(snapshot.holdMax,
+            this.stats[base + HOLD_MAX]);
+        for (int b=0; b<BUCKETS; b++) {
+            snapshot.waitBuckets[b] += this.stats[base + WAIT_BUCKETS + b];
+            snapshot.holdBuckets[b] += this.stats[base + HOLD_BUCKETS + b];
+        }
+    }
+
+    /** Get the start of the block of a thread
+     * 
+     * @param tid Thread ID
+     * @return Index of the first statistic of the thread
+     */
+    private int base(int tid) {
+        return 16 + tid * BLOCK;
+    }
+
+    /** Get the histogram bucket of a time
+     * 
+     * @param nanos Time in nanoseconds (>=0)
+     * @return Bucket index
+     */
+    static int bucket(long nanos) {
+        return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(nanos));
+    }
+
+    /** Statistics of one or more threads at some point in time
+     */
+    public static final class Snapshot {
+        private long acquisitions;
+        private long waitTotal;
+        private long holdTotal;
+        private long waitMax;
+        private long holdMax;
+        private final long[] waitBuckets = new long[BUCKETS];
+        private final long[] holdBuckets = new long[BUCKETS];
+
+        /** Get the number of acquisitions
+         * 
+         * @return Number of times the lock was acquired
+         */
+        public long getAcquisitions() {
+            return this.acquisitions;
+        }
+
+        /** Get the mean wait time
+         * 
+         * @return Mean nanoseconds spent in lock (0 if never acquired)
+         */
+        public double getWaitMean() {
+            return (this.acquisitions == 0) ? 0.0
+                : (double) this.waitTotal / this.acquisitions;
+        }
+
+        /** Get the mean hold time
+         * 
+         * @return Mean nanoseconds between lock and unlock (0 if never
+         *         acquired)
+         */
+        public double getHoldMean() {
+            return (this.acquisitions == 0) ? 0.0
+                : (double) this.holdTotal / this.acquisitions;
+        }
+
+        /** Get a wait time percentile
+         * 
+         * @param percentile    Percentile, between 0 and 100
+         * @return Upper bound of the bucket of the percentile, in nanoseconds
+         */
+        public long getWaitPercentile(double percentile) {
+            return percentile(this.waitBuckets, this.waitMax, percentile);
+        }
+
+        /** Get a hold time percentile
+         * 
+         * @param percentile    Percentile, between 0 and 100
+         * @return Upper bound of the bucket of the percentile, in nanoseconds
+         */
+        public long getHoldPercentile(double percentile) {
+            return percentile(this.holdBuckets, this.holdMax, percentile);
+        }
+
+        /** Get the maximum wait time
+         * 
+         * @return Longest time spent in lock, in nanoseconds
+         */
+        public long getWaitMax() {
+            return this.waitMax;
+        }
+
+        /** Get the maximum hold time
+         * 
+         * @return Longest time between lock and unlock, in nanoseconds
+         */
+        public long getHoldMax() {
+            return this.holdMax;
+        }
+
+        /** Summary of the statistics
+         * 
+         * @return Acquisitions, and wait and hold percentiles in nanoseconds
+         */
+        @Override
+        public String toString() {
+            return "acquisitions=" + this.acquisitions
+                + " wait[mean=" + Math.round(this.getWaitMean())
+                + " p50=" + this.getWaitPercentile(50.0)
+                + " p99=" + this.getWaitPercentile(99.0)
+                + " p99.9=" + this.getWaitPercentile(99.9)
+                + " max=" + this.waitMax + "]"
+                + " hold[mean=" + Math.round(this.getHoldMean())
+                + " p50=" + this.getHoldPercentile(50.0)
+                + " p99=" + this.getHoldPercentile(99.0)
+                + " p99.9=" + this.getHoldPercentile(99.9)
+                + " max=" + this.holdMax + "] ns";
+        }
+
+        /** Get a percentile from a histogram
+         * 
+         * @param buckets       Histogram
+         * @param max           Maximum recorded value
+         * @param percentile    Percentile, between 0 and 100
+         * @return Upper bound of the bucket of the percentile, capped at max
+         */
+        static long percentile(long[] buckets, long max,
+                double percentile) {
+            long count = 0;
+            for (long c : buckets) {
+                count += c;
+            }
+            if (count == 0) {
+                return 0;
+            }
+
+            long rank = (long) Math.ceil(count * percentile / 100.0);
+            long seen = 0;
+            for (int b=0; b<BUCKETS; b++) {
+                seen += buckets[b];
+                if (seen >= rank) {
+                    long upper = (b == 0) ? 0 : (1L << b) - 1;
+                    return Math.min(upper, max);
+                }
+            }
+            return max;
+        }
+    }
+}
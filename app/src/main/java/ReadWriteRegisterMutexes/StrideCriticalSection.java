@@ -0,0 +1,105 @@
+/** Cache line striding array critical section workload
+ */
+
+package ReadWriteRegisterMutexes;
+
+import java.util.Arrays;
+
+/** Cache line striding array critical section workload
+ * 
+ * Increments one long in each of a number of consecutive cache lines of a
+ * shared array, starting where the previous critical section stopped, so
+ * every critical section moves that many cache lines from the last holder of
+ * the lock to the next one. The sum of the array is the number of lines
+ * touched.
+ */
+public class StrideCriticalSection implements CriticalSection {
+    /** Default number of cache lines in the array
+     */
+    public static final int DEFAULT_LINES = 1024;
+
+    /** Default number of cache lines touched by each critical section
+     */
+    public static final int DEFAULT_TOUCHES = 16;
+
+    /** Number of longs in a cache line (64 bytes)
+     */
+    private static final int LINE = 8;
+
+    /** Array of lines
+     */
+    private final long[] lines;
+
+    /** Number of lines touched by each critical section
+     */
+    private final int touches;
+
+    /** Index of the next line to touch
+     */
+    private int next;
+
+    /** Number of lines touched
+     */
+    private long touched;
+
+    /** Constructor with the default sizes
+     */
+    public StrideCriticalSection() {
+        this(StrideCriticalSection.DEFAULT_LINES,
+            StrideCriticalSection.DEFAULT_TOUCHES);
+    }
+
+    /** Constructor
+     * 
+     * @param lines     Number of cache lines in the array
+     * @param touches   Number of cache lines touched by each critical section
+     */
+    public StrideCriticalSection(int lines, int touches) {
+        if ((lines <= 0) || (touches <= 0)) {
+            throw new IllegalArgumentException(
+                "Invalid size: lines and touches must be >0");
+        }
+        this.lines = new long[lines * LINE];
+        this.touches = touches;
+        this.reset();
+    }
+
+    /** Increment a long in each of the next lines
+     * 
+     * @param tid   Thread ID
+     * @param add   Unused, all threads touch the lines
+     */
+    public void run(int tid, boolean add) {
+        int numLines = this.lines.length / LINE;
+        int line = this.next;
+        for (int i=0; i<this.touches; i++) {
+            this.lines[line * LINE]++;
+            line = (line + 1 == numLines) ? 0 : line + 1;
+        }
+        this.next = line;
+        this.touched += this.touches;
+    }
+
+    /** Clear the array
+     */
+    public void reset() {
+        Arrays.fill(this.lines, 0);
+        this.next = 0;
+        this.touched = 0;
+    }
+
+    /** Check that every touch was counted
+     * 
+     * @return null if the invariants hold, or a description of the error
+     */
+    public String check() {
+        long sum = 0;
+        for (long l : this.lines) {
+            sum += l;
+        }
+        if (sum != this.touched) {
+            return "lines sum " + sum + " expected " + this.touched;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,128 @@
+/** Registry that assigns small, dense IDs to threads
+ */
+
+package ReadWriteRegisterMutexes;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/** Registry that assigns small, dense IDs to threads
+ * 
+ * The locks need every thread to pass a thread ID in [0, numThreads). This
+ * registry gives each thread the lowest free ID the first time it asks for
+ * one, and remembers it in a ThreadLocal, so threads coming from a pool can
+ * use the locks without any bookkeeping.
+ * 
+ * An ID is recycled when its thread calls release, or when its thread has
+ * terminated and another thread needs an ID.
+ * 
+ * Looking up the ID of a thread that already has one does not allocate.
+ */
+public class ThreadIdRegistry {
+    /** Number of IDs available
+     */
+    private final int capacity;
+
+    /** Thread owning each ID (null if the ID is free)
+     */
+    private final AtomicReferenceArray<Thread> owners;
+
+    /** ID of the current thread (null if it does not have one)
+     */
+    private final ThreadLocal<Slot> slot;
+
+    /** ID assigned to a thread
+     */
+    private static final class Slot {
+        /** Thread ID
+         */
+        final int id;
+
+        /** Constructor
+         * 
+         * @param id    Thread ID
+         */
+        Slot(int id) {
+            this.id = id;
+        }
+    }
+
+    /** Constructor
+     * 
+     * @param capacity  Number of IDs available, i.e. the maximum number of
+     *                  live threads using the registry at the same time
+     */
+    public ThreadIdRegistry(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException(
+                "Invalid capacity: capacity must be >0");
+        }
+
+        this.capacity = capacity;
+        this.owners = new AtomicReferenceArray<Thread>(capacity);
+        this.slot = new ThreadLocal<Slot>();
+    }
+
+    /** Get the number of IDs available
+     * 
+     * @return Number of IDs available
+     */
+    public int capacity() {
+        return this.capacity;
+    }
+
+    /** Get the ID of the current thread, assigning one if needed
+     * 
+     * @return Thread ID in [0, capacity)
+     * @throws IllegalStateException if all IDs are owned by live threads
+     */
+    public int get() {
+        Slot current = this.slot.get();
+        if (current == null) {
+            current = new Slot(this.claim(Thread.currentThread()));
+            this.slot.set(current);
+        }
+        return current.id;
+    }
+
+    /** Get the ID of the current thread without assigning one
+     * 
+     * @return Thread ID in [0, capacity), or -1 if the thread has none
+     */
+    public int find() {
+        Slot current = this.slot.get();
+        return (current == null) ? -1 : current.id;
+    }
+
+    /** Release the ID of the current thread, if it has one
+     * 
+     * The thread must not hold or be waiting for a lock using this ID. It will
+     * get a new ID the next time it calls get.
+     */
+    public void release() {
+        Slot current = this.slot.get();
+        if (current != null) {
+            this.slot.remove();
+            this.owners.set(current.id, null);
+        }
+    }
+
+    /** Claim the lowest free ID for a thread
+     * 
+     * IDs owned by terminated threads are free too.
+     * 
+     * @param thread    Thread claiming the ID
+     * @return Claimed ID
+     */
+    private int claim(Thread thread) {
+        for (int id=0; id<this.capacity; id++) {
+            Thread owner = this.owners.get(id);
+            if (((owner == null) || !owner.isAlive())
+                    && this.owners.compareAndSet(id, owner, thread)) {
+                return id;
+            }
+        }
+
+        throw new IllegalStateException("All " + this.capacity
+            + " thread IDs are in use by live threads");
+    }
+}
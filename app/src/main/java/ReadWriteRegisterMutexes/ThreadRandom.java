@@ -0,0 +1,50 @@
+/** Per-thread pseudo-random numbers for the critical section workloads
+ */
+
+package ReadWriteRegisterMutexes;
+
+/** Per-thread pseudo-random numbers for the critical section workloads
+ * 
+ * A xorshift generator per thread ID. The states are padded apart, so threads
+ * do not share cache lines, and drawing a number does not allocate or
+ * synchronize.
+ */
+final class ThreadRandom {
+    /** Number of longs between the states of consecutive threads (128 bytes)
+     */
+    private static final int STRIDE = 16;
+
+    /** State of each thread
+     */
+    private final long[] seeds;
+
+    /** Constructor
+     * 
+     * @param numThreads    Number of threads
+     */
+    ThreadRandom(int numThreads) {
+        if (numThreads <= 0) {
+            throw new IllegalArgumentException(
+                "Invalid number of threads: numThreads must be >0");
+        }
+        this.seeds = new long[(numThreads + 2) * STRIDE];
+        for (int tid=0; tid<numThreads; tid++) {
+            this.seeds[(tid + 1) * STRIDE] = 0x9E3779B97F4A7C15L * (tid + 1);
+        }
+    }
+
+    /** Get the next random number of a thread
+     * 
+     * @param tid   Thread ID
+     * @return Random non-negative int
+     */
+    int next(int tid) {
+        int i = (tid + 1) * STRIDE;
+        long x = this.seeds[i];
+        x ^= x << 13;
+        x ^= x >>> 7;
+        x ^= x << 17;
+        this.seeds[i] = x;
+        return (int) (x >>> 33);
+    }
+}
@@ -8,15 +8,22 @@
 package ReadWriteRegisterMutexes.Tournament;
 
 import java.lang.Math;
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
+
+import ReadWriteRegisterMutexes.Instrumented;
+import ReadWriteRegisterMutexes.LockCounters;
+import ReadWriteRegisterMutexes.MemoryOrdering;
+import ReadWriteRegisterMutexes.RegisterArray;
+import ReadWriteRegisterMutexes.RegisterLayout;
+import ReadWriteRegisterMutexes.SpinWaitStrategy;
+import ReadWriteRegisterMutexes.WaitStrategy;
 
 /** TournamentLock class implements a mutex lock using the Peterson's Tournament
  * Algorithm
  * 
  * The mutex uses the Pterson's Tournament Algorithm by Peterson.
  */
-public class TournamentLock implements ReadWriteRegisterMutexes.Lock {
+public class TournamentLock implements ReadWriteRegisterMutexes.Lock,
+        Instrumented {
     /** Number of threads or leaves of the tournament tree
      * 
      * This must be a power of 2. If n is not a power of 2, "dummy" threads that
@@ -33,35 +40,87 @@ public class TournamentLock implements ReadWriteRegisterMutexes.Lock {
     /** Shared variable that indicates if a process wants to access the CS in
      *  each node contest
      * 
-     * Both registers for process 0 and 1 in each tournament are stored in the
-     * same array. This way each node in the tree will have 2 entries:
-     * wantCS[level][2*node] and wantCS[level][2*node+1], where the size of
-     * wantCS is the height of the tree (for the level dimension) by the number
-     * of leaves in the tree (for the node dimension).
+     * The tree is stored in heap order: the root is node 1, the children of
+     * node k are nodes 2k and 2k+1, and the leaf of thread tid is node n+tid.
+     * The register of the process that comes from child c is wantCS[c], so the
+     * two registers of node k are wantCS[2k] and wantCS[2k+1], and the register
+     * of the other process in the contest is wantCS[c^1]. Entries 0 and 1 are
+     * not used.
      * 
-     * Array entries need to be AtomicBooleans, so that reads and writes of an
-     * array entry are atomic:
-     * //stackoverflow.com/questions/2236184/how-to-declare-array-elements-volatile-in-java
+     * It is a RegisterArray, so that reads and writes of an entry are atomic
+     * and volatile. Entries are 0 (false) or 1 (true).
      */
-    private volatile AtomicBoolean[][] wantCS;
+    private final RegisterArray wantCS;
 
     /** Shared variable that indicates the turn in each node contest
      * 
-     * Each node in the tree will have an entry: turn[level][node], where the
-     * size of turn is the height of the tree (for level dimension) by half of
-     * the number of leaves of the tree (for the node dimension).
+     * Each internal node k of the heap-ordered tree has an entry: turn[k], so
+     * the turn of the contest entered from child c is turn[c>>1]. Entry 0 is
+     * not used.
      * 
-     * Array entries need to be AtomicIntegers, so that reads and writes of an
-     * array entry are atomic:
-     * //stackoverflow.com/questions/2236184/how-to-declare-array-elements-volatile-in-java
+     * It is a RegisterArray, so that reads and writes of an entry are atomic
+     * and volatile.
+     */
+    private final RegisterArray turn;
+
+    /** Path of each thread from its leaf to the root
+     * 
+     * Local variable (each row is only read by one thread). path[tid][level] is
+     * the child node the thread comes from in the contest of that level, which
+     * gives its node (path >> 1), its side (path & 1) and its opponent
+     * (path ^ 1) without any arithmetic on the critical path.
+     */
+    private final int[][] path;
+
+    /** What waiting threads do in each busy-wait loop iteration
+     */
+    private final WaitStrategy waitStrategy;
+
+    /** Memory ordering of the shared register accesses
+     */
+    private final MemoryOrdering ordering;
+
+    /** Event counters of the threads
      */
-    private volatile AtomicInteger[][] turn;
+    private final LockCounters counters;
 
     /** Constructor
      * 
      * @param numThreads    Number of threads using the lock
      */
     public TournamentLock(int numThreads) {
+        this(numThreads, RegisterLayout.PACKED);
+    }
+
+    /** Constructor
+     * 
+     * @param numThreads    Number of threads using the lock
+     * @param layout    Memory layout of the shared registers
+     */
+    public TournamentLock(int numThreads, RegisterLayout layout) {
+        this(numThreads, layout, new SpinWaitStrategy());
+    }
+
+    /** Constructor
+     * 
+     * @param numThreads    Number of threads using the lock
+     * @param layout    Memory layout of the shared registers
+     * @param waitStrategy  Wait strategy of the busy-wait loops
+     */
+    public TournamentLock(int numThreads, RegisterLayout layout,
+            WaitStrategy waitStrategy) {
+        this(numThreads, layout, waitStrategy, MemoryOrdering.SEQUENTIAL);
+    }
+
+    /** Constructor
+     * 
+     * @param numThreads    Number of threads using the lock
+     * @param layout    Memory layout of the shared registers
+     * @param waitStrategy  Wait strategy of the busy-wait loops
+     * @param ordering  Memory ordering of the shared register accesses
+     */
+    public TournamentLock(int numThreads, RegisterLayout layout,
+            WaitStrategy waitStrategy, MemoryOrdering ordering) {
         //System.out.println("TournamentLock: numThreads = " + numThreads);
 
         // Check we have a valid number of threads
@@ -79,39 +138,22 @@ public class TournamentLock implements ReadWriteRegisterMutexes.Lock {
         this.hTree = (int) Math.floor(Math.log((double) this.n) / Math.log(2.0)); // Binary tree height
         //System.out.println("TournamentLock: hTree = " + hTree);
 
-        // Initialize wantCS array
-        this.wantCS = new AtomicBoolean[this.hTree][this.n];
-        //System.out.println("TournamentLock: wantCS = ");
-        for (AtomicBoolean[] row : this.wantCS) {
-            //System.out.print("[ ");
-            for (int i=0; i<row.length; i++) {
-                row[i] = new AtomicBoolean(false);
-
-                /*
-                if (i == row.length-1) {
-                    System.out.println(row[i].get() + " ]");
-                } else {
-                    System.out.print(row[i].get() + ", ");
-                }
-                */
-            }
-        }
-
-        // Initialize turn array
-        this.turn = new AtomicInteger[this.hTree][this.n / 2];
-        //System.out.println("TournamentLock: turn =");
-        for (AtomicInteger[] row : this.turn) {
-            //System.out.print("[ ");
-            for (int i=0; i<row.length; i++) {
-                row[i] = new AtomicInteger(0);
-
-                /*
-                if (i == row.length-1) {
-                    System.out.println(row[i].get() + " ]");
-                } else {
-                    System.out.print(row[i].get() + ", ");
-                }
-                */
+        this.waitStrategy = waitStrategy;
+        this.ordering = ordering;
+        this.counters = new LockCounters(this.n);
+
+        // Initialize the tree registers (one per node and one per internal
+        // node)
+        this.wantCS = new RegisterArray(2 * this.n, layout, ordering);
+        this.turn = new RegisterArray(this.n, layout, ordering);
+
+        // Precompute the path of every thread, climbing from its leaf
+        this.path = new int[this.n][this.hTree];
+        for (int tid=0; tid<this.n; tid++) {
+            int node = this.n + tid;
+            for (int level=0; level<this.hTree; level++) {
+                this.path[tid][level] = node;
+                node >>= 1;
             }
         }
     }
@@ -122,34 +164,33 @@ public class TournamentLock implements ReadWriteRegisterMutexes.Lock {
      */
     public void lock(int tid) {
         // System.out.println("Thread-" + tid + ": locking...");
-        int level, id, idj;
-        int node = tid; // Starting node (leave) is the thread ID
+        final int[] path = this.path[tid];
+        int level, child, rival, spins;
 
         // Iterate over all the levels of the tree to contest other threads
         for (level = 0; level < this.hTree; level++) {
-            id = node % 2; // Find if process 0 or 1 for Peterson's contest
-            idj = 1 - id; // Id of other thread in the contest
-            node = Math.floorDiv(node, 2); // Find next node
+            child = path[level]; // Node we come from, our side is child & 1
+            rival = child ^ 1; // Node the other thread in the contest comes from
 
             // Say we want to enter the CS
-            this.wantCS[level][2 * node + id].set(true);
+            this.wantCS.store(child, 1);
             // Set the turn to the other thread in the contest
-            this.turn[level][node].set(idj);
+            this.turn.store(child >> 1, rival & 1);
 
-            // Busy wait until we win the contest
-            while (this.wantCS[level][2 * node + idj].get()
-                && (this.turn[level][node].get() == idj)) {
-                // Do nothing
+            // Both stores must be visible before we read the other thread's
+            // registers (store-load ordering)
+            this.ordering.fullFence();
 
-                // DO NOT DELETE!!! For some reason the lock does not work
-                // properly without this print statement.
-                //System.out.print("");
+            // Busy wait until we win the contest
+            spins = 0;
+            while ((this.wantCS.poll(rival) == 1)
+                && (this.turn.poll(child >> 1) == (rival & 1))) {
+                spins = this.waitStrategy.idle(spins);
+                this.counters.spin(tid);
             }
+            this.ordering.acquireFence();
         }
-        
-        // DO NOT DELETE!!! For some reason the lock does not work properly
-        // without this print statement.
-        //System.out.print("");
+        this.counters.acquire(tid);
     }
 
     /** Unlock or critical section exit protocol method of mutex
@@ -158,19 +199,21 @@ public class TournamentLock implements ReadWriteRegisterMutexes.Lock {
      */
     public void unlock(int tid) {
         //System.out.println("Thread-" + tid + ": unlocking...");
-        int level, node, id;
+        final int[] path = this.path[tid];
 
         // Iterate the tree backwards to reset the values set by the thread
-        for (level=this.hTree-1; level>=0; level--) {
-            // Calculate the id from level and thread. For this, find previous
-            // node in tree then id = nodePrev mod 2.
-            id = Math.floorDiv(tid, (int)Math.pow(2.0, (double)(level))) % 2;
-
-            // Calculate current node from level and thread
-            node = Math.floorDiv(tid, (int)Math.pow(2.0, (double)(level+1)));
-
-            // Reset wantCS entry
-            this.wantCS[level][2*node+id].set(false);
+        for (int level=this.hTree-1; level>=0; level--) {
+            // Reset wantCS entry (release, so the next thread in the contest
+            // sees the writes made in the critical section)
+            this.wantCS.store(path[level], 0);
         }
     }
+
+    /** Get the event counters of the lock
+     * 
+     * @return Counters of the lock (all 0 unless run with -DlockCounters=true)
+     */
+    public LockCounters getCounters() {
+        return this.counters;
+    }
 }
@@ -0,0 +1,29 @@
+/** Wait strategy interface for busy-wait loops
+ */
+
+package ReadWriteRegisterMutexes;
+
+/** Wait strategy interface for busy-wait loops
+ * 
+ * Every busy-wait loop in the locks calls idle once per iteration, while the
+ * condition it waits on is still false. The strategy decides what the waiting
+ * thread does with that iteration: spin, yield the processor or park.
+ * 
+ * The loop keeps the iteration counter in a local variable, so a strategy
+ * instance holds no per-thread state and can be shared by all the threads
+ * using a lock:
+ * 
+ *     int iteration = 0;
+ *     while (condition) {
+ *         iteration = this.waitStrategy.idle(iteration);
+ *     }
+ */
+public interface WaitStrategy {
+    /** Wait for one iteration of a busy-wait loop
+     * 
+     * @param iteration Number of idle calls already made in the current wait
+     *                  (0 on the first call)
+     * @return Value to pass as iteration on the next call
+     */
+    public int idle(int iteration);
+}
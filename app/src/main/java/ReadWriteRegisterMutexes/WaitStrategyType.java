@@ -0,0 +1,30 @@
+/** Types of wait strategies available for the locks
+ */
+
+package ReadWriteRegisterMutexes;
+
+/** Types of wait strategies available for the locks
+ * 
+ * Used to pick a wait strategy by name, e.g. in benchmark parameters.
+ */
+public enum WaitStrategyType {
+    SPIN,       // SpinWaitStrategy
+    YIELD,      // YieldWaitStrategy with default spins
+    PARK;       // ParkWaitStrategy with default spins and park durations
+
+    /** Create a new wait strategy of this type
+     * 
+     * @return New wait strategy with the default settings for its type
+     */
+    public WaitStrategy newWaitStrategy() {
+        switch (this) {
+            case YIELD:
+                return new YieldWaitStrategy();
+            case PARK:
+                return new ParkWaitStrategy();
+            case SPIN:
+            default:
+                return new SpinWaitStrategy();
+        }
+    }
+}
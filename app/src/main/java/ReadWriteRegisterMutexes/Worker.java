@@ -5,6 +5,13 @@ package ReadWriteRegisterMutexes;
 
 import java.util.concurrent.locks.ReentrantLock;
 
+import ReadWriteRegisterMutexes.Adaptive.AdaptiveLock;
+import ReadWriteRegisterMutexes.ColoredBakery.ColoredBakeryLock;
+import ReadWriteRegisterMutexes.FastPath.FastPathLock;
+import ReadWriteRegisterMutexes.OneBit.OneBitLock;
+import ReadWriteRegisterMutexes.OneBit.PackedOneBitLock;
+import ReadWriteRegisterMutexes.Tournament.TournamentLock;
+
 /** Worker thread class to increment/decrement a shared counter
  */
 public class Worker implements Runnable {
@@ -17,6 +24,7 @@ public class Worker implements Runnable {
     private Lock lock;           // Lock using the Lock interface
     private ReentrantLock lockR; // ReentrantLock lock
     private LockType lockType;   // Lock type
+    private CriticalSection criticalSection; // Workload, or null to use c
     private int tid;             // Thread ID
 
     /** Types of locks supported
@@ -86,6 +94,14 @@ public class Worker implements Runnable {
         return Worker.c;
     }
 
+    /** Get criticalSection instance variable value
+     * 
+     * @return Returns criticalSection instance variable value
+     */
+    public CriticalSection getCriticalSection() {
+        return this.criticalSection;
+    }
+
     /** Get increments instance variable value
      * 
      * @return Returns increments instance variable value
@@ -127,45 +143,215 @@ public class Worker implements Runnable {
     }
 
     /** Increment/decrement shared counter using the specified lock
+     * 
+     * The lock type and class are resolved once, before the loop, and each
+     * lock class has its own copy of the loop with the lock in a variable of
+     * that class. That way every lock and unlock call site only ever sees one
+     * lock class, and the JIT inlines the lock protocol into the loop even
+     * when several lock classes run in the same JVM.
      */
     public void run() {
-        // Increment instance variable c the configured number of times
+        long cpuTime = CpuTimeProfiler.currentThreadCpuTime();
+        int delta = this.add ? 1 : -1;
+
+        switch(this.lockType) {
+            case NO_LOCK: // No lock
+                if (this.criticalSection != null) {
+                    this.runCriticalSection();
+                } else {
+                    this.runNoLock(delta);
+                }
+                break;
+            case LOCK_INTERFACE: // Lock interface
+                if (this.criticalSection != null) {
+                    this.runCriticalSection(this.lock);
+                } else if (this.lock instanceof TournamentLock) {
+                    this.runTournament((TournamentLock) this.lock, delta);
+                } else if (this.lock instanceof ColoredBakeryLock) {
+                    this.runColoredBakery((ColoredBakeryLock) this.lock,
+                        delta);
+                } else if (this.lock instanceof OneBitLock) {
+                    this.runOneBit((OneBitLock) this.lock, delta);
+                } else if (this.lock instanceof PackedOneBitLock) {
+                    this.runPackedOneBit((PackedOneBitLock) this.lock, delta);
+                } else if (this.lock instanceof AdaptiveLock) {
+                    this.runAdaptive((AdaptiveLock) this.lock, delta);
+                } else if (this.lock instanceof FastPathLock) {
+                    this.runFastPath((FastPathLock) this.lock, delta);
+                } else {
+                    this.runLock(this.lock, delta);
+                }
+                break;
+            case LOCK_REENTRANT: // Reentrant lock
+                if (this.criticalSection != null) {
+                    this.runCriticalSection(this.lockR);
+                } else {
+                    this.runReentrant(this.lockR, delta);
+                }
+                break;
+            default: // Bad configuration
+                System.out.println("ERROR: T" + this.tid + " entered "
+                    + "illegal state: this.lockType = " + this.lockType);
+        }
+
+        // Report the CPU time of this run
+        CpuTimeProfiler.addThreadCpuTime(
+            CpuTimeProfiler.currentThreadCpuTime() - cpuTime);
+    }
+
+    /** Increment/decrement c without a lock
+     * 
+     * @param delta 1 to increment, -1 to decrement
+     */
+    private void runNoLock(int delta) {
+        for (int i=0; i<this.increments; i++) {
+            Worker.c += delta;
+        }
+    }
+
+    /** Increment/decrement c using a TournamentLock
+     * 
+     * @param lock  Lock
+     * @param delta 1 to increment, -1 to decrement
+     */
+    private void runTournament(TournamentLock lock, int delta) {
+        int tid = this.tid;
+        for (int i=0; i<this.increments; i++) {
+            lock.lock(tid);
+            Worker.c += delta;
+            lock.unlock(tid);
+        }
+    }
+
+    /** Increment/decrement c using a ColoredBakeryLock
+     * 
+     * @param lock  Lock
+     * @param delta 1 to increment, -1 to decrement
+     */
+    private void runColoredBakery(ColoredBakeryLock lock, int delta) {
+        int tid = this.tid;
+        for (int i=0; i<this.increments; i++) {
+            lock.lock(tid);
+            Worker.c += delta;
+            lock.unlock(tid);
+        }
+    }
+
+    /** Increment/decrement c using a OneBitLock
+     * 
+     * @param lock  Lock
+     * @param delta 1 to increment, -1 to decrement
+     */
+    private void runOneBit(OneBitLock lock, int delta) {
+        int tid = this.tid;
+        for (int i=0; i<this.increments; i++) {
+            lock.lock(tid);
+            Worker.c += delta;
+            lock.unlock(tid);
+        }
+    }
+
+    /** Increment/decrement c using a PackedOneBitLock
+     * 
+     * @param lock  Lock
+     * @param delta 1 to increment, -1 to decrement
+     */
+    private void runPackedOneBit(PackedOneBitLock lock, int delta) {
+        int tid = this.tid;
+        for (int i=0; i<this.increments; i++) {
+            lock.lock(tid);
+            Worker.c += delta;
+            lock.unlock(tid);
+        }
+    }
+
+    /** Increment/decrement c using an AdaptiveLock
+     * 
+     * @param lock  Lock
+     * @param delta 1 to increment, -1 to decrement
+     */
+    private void runAdaptive(AdaptiveLock lock, int delta) {
+        int tid = this.tid;
         for (int i=0; i<this.increments; i++) {
-            // Choose what lock to use
-            switch(this.lockType) {
-                case NO_LOCK: // No lock
-                    if (this.add) {
-                        Worker.c++;
-                    } else {
-                        Worker.c--;
-                    }
-                    break;
-                case LOCK_INTERFACE: // Lock interface
-                    if (this.add) {
-                        this.lock.lock(this.tid);
-                        Worker.c++;
-                        this.lock.unlock(this.tid);
-                    } else {
-                        this.lock.lock(this.tid);
-                        Worker.c--;
-                        this.lock.unlock(this.tid);
-                    }
-                    break;
-                case LOCK_REENTRANT: // Reentrant lock
-                    if (this.add) {
-                        this.lockR.lock();
-                        Worker.c++;
-                        this.lockR.unlock();
-                    } else {
-                        this.lockR.lock();
-                        Worker.c--;
-                        this.lockR.unlock();
-                    }
-                    break;
-                default: // Bad configuration
-                    System.out.println("ERROR: T" + this.tid + " entered "
-                        + "illegal state: this.lockType = " + this.lockType);
-            }
+            lock.lock(tid);
+            Worker.c += delta;
+            lock.unlock(tid);
+        }
+    }
+
+    /** Increment/decrement c using a FastPathLock
+     * 
+     * @param lock  Lock
+     * @param delta 1 to increment, -1 to decrement
+     */
+    private void runFastPath(FastPathLock lock, int delta) {
+        int tid = this.tid;
+        for (int i=0; i<this.increments; i++) {
+            lock.lock(tid);
+            Worker.c += delta;
+            lock.unlock(tid);
+        }
+    }
+
+    /** Increment/decrement c using any other Lock, such as a decorator
+     * 
+     * @param lock  Lock
+     * @param delta 1 to increment, -1 to decrement
+     */
+    private void runLock(Lock lock, int delta) {
+        int tid = this.tid;
+        for (int i=0; i<this.increments; i++) {
+            lock.lock(tid);
+            Worker.c += delta;
+            lock.unlock(tid);
+        }
+    }
+
+    /** Increment/decrement c using a ReentrantLock
+     * 
+     * @param lock  Lock
+     * @param delta 1 to increment, -1 to decrement
+     */
+    private void runReentrant(ReentrantLock lock, int delta) {
+        for (int i=0; i<this.increments; i++) {
+            lock.lock();
+            Worker.c += delta;
+            lock.unlock();
+        }
+    }
+
+    /** Run the critical section workload without a lock
+     */
+    private void runCriticalSection() {
+        CriticalSection cs = this.criticalSection;
+        for (int i=0; i<this.increments; i++) {
+            cs.run(this.tid, this.add);
+        }
+    }
+
+    /** Run the critical section workload using a Lock
+     * 
+     * @param lock  Lock
+     */
+    private void runCriticalSection(Lock lock) {
+        CriticalSection cs = this.criticalSection;
+        for (int i=0; i<this.increments; i++) {
+            lock.lock(this.tid);
+            cs.run(this.tid, this.add);
+            lock.unlock(this.tid);
+        }
+    }
+
+    /** Run the critical section workload using a ReentrantLock
+     * 
+     * @param lock  Lock
+     */
+    private void runCriticalSection(ReentrantLock lock) {
+        CriticalSection cs = this.criticalSection;
+        for (int i=0; i<this.increments; i++) {
+            lock.lock();
+            cs.run(this.tid, this.add);
+            lock.unlock();
         }
     }
 
@@ -185,6 +371,15 @@ public class Worker implements Runnable {
         Worker.c = c;
     }
 
+    /** Set criticalSection instance variable value
+     * 
+     * @param criticalSection   Workload to run while holding the lock, or null
+     *                          to increment/decrement c
+     */
+    public void setCriticalSection(CriticalSection criticalSection) {
+        this.criticalSection = criticalSection;
+    }
+
     /** Set increments instance variable value
      * 
      * @param increments    Number of increments/decrements per worker
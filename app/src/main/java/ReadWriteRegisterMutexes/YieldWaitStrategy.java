@@ -0,0 +1,54 @@
+/** Bounded spin then yield wait strategy
+ */
+
+package ReadWriteRegisterMutexes;
+
+/** Bounded spin then yield wait strategy
+ * 
+ * The waiting thread spins for a bounded number of iterations, and then calls
+ * Thread.yield on every iteration, so a descheduled lock holder can get the
+ * processor back when there are more threads than cores.
+ */
+public class YieldWaitStrategy implements WaitStrategy {
+    /** Default number of iterations to spin before yielding
+     */
+    public static final int DEFAULT_MAX_SPINS = 100;
+
+    /** Number of iterations to spin before yielding
+     */
+    private final int maxSpins;
+
+    /** Constructor with the default number of spins
+     */
+    public YieldWaitStrategy() {
+        this(YieldWaitStrategy.DEFAULT_MAX_SPINS);
+    }
+
+    /** Constructor
+     * 
+     * @param maxSpins  Number of iterations to spin before yielding
+     */
+    public YieldWaitStrategy(int maxSpins) {
+        if (maxSpins < 0) {
+            throw new IllegalArgumentException(
+                "Invalid number of spins: maxSpins must be >=0");
+        }
+        this.maxSpins = maxSpins;
+    }
+
+    /** Wait for one iteration of a busy-wait loop
+     * 
+     * @param iteration Number of idle calls already made in the current wait
+     * @return Value to pass as iteration on the next call
+     */
+    public int idle(int iteration) {
+        if (iteration < this.maxSpins) {
+            Thread.onSpinWait();
+            return iteration + 1;
+        }
+
+        // Stop counting once we yield to avoid overflowing iteration
+        Thread.yield();
+        return iteration;
+    }
+}
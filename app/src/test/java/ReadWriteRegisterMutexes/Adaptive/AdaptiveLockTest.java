@@ -8,8 +8,11 @@ import static org.junit.Assert.*;
 import java.lang.Runnable;
 //import java.util.concurrent.locks.ReentrantLock;
 
+import ReadWriteRegisterMutexes.IncrementBenchmark;
 import ReadWriteRegisterMutexes.Worker;
 import ReadWriteRegisterMutexes.Adaptive.AdaptiveLock;
+import ReadWriteRegisterMutexes.RegisterLayout;
+import ReadWriteRegisterMutexes.YieldWaitStrategy;
 
 public class AdaptiveLockTest {
     /** Test the AdaptiveLock by incrementing the c shared variable 1,000,000
@@ -60,4 +63,25 @@ public class AdaptiveLockTest {
         System.out.println("Success: c = " + ((Worker)workers[0]).getC()
             + " expected 0");
     }
+
+    /** Test the AdaptiveLock past 2^31 acquisitions, by starting the levels
+     * just below Integer.MAX_VALUE
+     */
+    @Test
+    public void testAdaptiveLockLongLevels() {
+        int numWorkers = 4;
+        AdaptiveLock lock = new AdaptiveLock(numWorkers, 80000000,
+            RegisterLayout.PACKED, new YieldWaitStrategy());
+        lock.startAt(Integer.MAX_VALUE - 100);
+        try (IncrementBenchmark benchmark = new IncrementBenchmark()) {
+            assertEquals("Synchronization error: ", 0,
+                benchmark.runIncrementBenchmark(numWorkers, 200000, lock));
+        }
+
+        // Every acquisition moves next at least one level further
+        for (int i=0; i<1000; i++) {
+            lock.lock(0);
+            lock.unlock(0);
+        }
+    }
 }
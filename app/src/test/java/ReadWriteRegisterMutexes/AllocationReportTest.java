@@ -0,0 +1,85 @@
+/** AllocationReport tests
+ */
+package ReadWriteRegisterMutexes;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class AllocationReportTest {
+    /** Test that the report fails locks that allocate or were not measured
+     */
+    @Test
+    public void testReport() {
+        Map<String, Double> bytes = new LinkedHashMap<>();
+        bytes.put("TOURNAMENT", 0.0001);
+        assertTrue("Only JMH noise: ", AllocationReport.passed(bytes));
+        bytes.put("ADAPTIVE", 16.0);
+        bytes.put("ONE_BIT", Double.NaN);
+        assertFalse("Allocating lock: ", AllocationReport.passed(bytes));
+
+        String report = AllocationReport.report(bytes);
+        assertTrue("Passed lock: ",
+            report.contains("TOURNAMENT  0.0001 B/op PASS"));
+        assertTrue("Failed lock: ",
+            report.contains("ADAPTIVE 16.0000 B/op FAIL"));
+        assertTrue("Unmeasured lock: ",
+            report.contains("ONE_BIT            - FAIL"));
+    }
+
+    /** Test that lock and unlock of every registered lock do not allocate
+     * 
+     * Single thread version of the AllocationReport check, using the bytes
+     * allocated by the thread instead of the GC profiler.
+     */
+    @Test
+    public void testNoAllocation() {
+        if (!(ManagementFactory.getThreadMXBean()
+                instanceof com.sun.management.ThreadMXBean)) {
+            return;
+        }
+        com.sun.management.ThreadMXBean threads
+            = (com.sun.management.ThreadMXBean)
+                ManagementFactory.getThreadMXBean();
+        if (!threads.isThreadAllocatedMemorySupported()
+                || !threads.isThreadAllocatedMemoryEnabled()) {
+            return;
+        }
+        long id = Thread.currentThread().getId();
+
+        for (String lockType : LockFactory.names()) {
+            Object lockObj = LockFactory.newLock(lockType,
+                new LockFactory.Options().setNumThreads(4));
+            Lock lock = (lockObj instanceof Lock) ? (Lock) lockObj : null;
+            ReentrantLock lockR = (lockObj instanceof ReentrantLock)
+                ? (ReentrantLock) lockObj : null;
+            if ((lock == null) && (lockR == null)) {
+                continue;
+            }
+
+            // Warm up, so the adaptive lock links its segments and the JIT
+            // compiles lock and unlock
+            long allocated = 0;
+            for (int round=0; round<2; round++) {
+                long start = threads.getThreadAllocatedBytes(id);
+                for (int i=0; i<200000; i++) {
+                    if (lock != null) {
+                        lock.lock(0);
+                        lock.unlock(0);
+                    } else {
+                        lockR.lock();
+                        lockR.unlock();
+                    }
+                }
+                allocated = threads.getThreadAllocatedBytes(id) - start;
+            }
+            // Allow for the bookkeeping of the JIT and the bean itself
+            assertTrue(lockType + " allocated " + allocated + " bytes: ",
+                allocated < 1024);
+        }
+    }
+}
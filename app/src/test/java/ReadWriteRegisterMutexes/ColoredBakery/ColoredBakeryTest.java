@@ -1,12 +1,19 @@
 package ReadWriteRegisterMutexes.ColoredBakery;
 import ReadWriteRegisterMutexes.ColoredBakery.ColoredBakeryLock;
+import ReadWriteRegisterMutexes.CriticalSection;
+import ReadWriteRegisterMutexes.IncrementBenchmark;
 import ReadWriteRegisterMutexes.Lock;
+import ReadWriteRegisterMutexes.MemoryOrdering;
+import ReadWriteRegisterMutexes.RegisterLayout;
 import ReadWriteRegisterMutexes.Worker;
+import ReadWriteRegisterMutexes.YieldWaitStrategy;
 import org.junit.Test;
 
 import java.util.concurrent.locks.ReentrantLock;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 public class ColoredBakeryTest {
     /** Test the ColoredBakeryLock by incrementing the c shared variable 10,000
@@ -89,4 +96,68 @@ public class ColoredBakeryTest {
         System.out.println("Finished: c = " + ((Worker)workers[0]).getC()
                 + " expected 0");
     }
+
+    /** Test mutual exclusion with release/acquire memory ordering while the
+     * shared color flips on every release
+     * 
+     * Every unlock flips the color, so with 8 threads most doorways run next
+     * to a flip. A process that read a stale color in its doorway would take
+     * a ticket of the old color and enter together with a process that saw
+     * it out of the doorway, which the critical section detects.
+     */
+    @Test
+    public void testColorFlipReleaseAcquire() {
+        int numWorkers = 8;
+        ColoredBakeryLock lock = new ColoredBakeryLock(numWorkers,
+                RegisterLayout.PACKED, new YieldWaitStrategy(),
+                MemoryOrdering.RELEASE_ACQUIRE);
+        ExclusionCheck check = new ExclusionCheck(lock);
+        try (IncrementBenchmark benchmark = new IncrementBenchmark()) {
+            benchmark.runIncrementBenchmark(numWorkers, 50000, lock, check);
+        }
+        assertNull(check.check());
+        assertTrue("Color never flipped", check.colors[0] > 0);
+        assertTrue("Color never flipped", check.colors[1] > 0);
+    }
+
+    /* Critical section that counts the processes that entered while another
+     * one was inside, and samples the shared color */
+    private static class ExclusionCheck implements CriticalSection {
+        private final ColoredBakeryLock lock;
+        private volatile int inside;
+        private int overlaps;
+        private final long[] colors = new long[2];
+
+        ExclusionCheck(ColoredBakeryLock lock) {
+            this.lock = lock;
+        }
+
+        @Override
+        public void run(int tid, boolean add) {
+            if (this.inside != 0) {
+                this.overlaps++;
+            }
+            this.inside = tid + 1;
+            this.colors[this.lock.color()]++;
+            if (this.inside != tid + 1) {
+                this.overlaps++;
+            }
+            this.inside = 0;
+        }
+
+        @Override
+        public void reset() {
+            this.inside = 0;
+            this.overlaps = 0;
+            this.colors[0] = 0;
+            this.colors[1] = 0;
+        }
+
+        @Override
+        public String check() {
+            return (this.overlaps == 0) ? null
+                : this.overlaps + " processes entered the critical section "
+                    + "while another one was in it";
+        }
+    }
 }
@@ -0,0 +1,63 @@
+/** Critical section workload tests
+ */
+package ReadWriteRegisterMutexes;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import ReadWriteRegisterMutexes.Tournament.TournamentLock;
+
+public class CriticalSectionTest {
+    /** Test that every workload keeps its invariants when run by several
+     *  threads through a TournamentLock
+     */
+    @Test
+    public void testWorkloadsWithLock() {
+        int numWorkers = 4;
+        int increments = 20000;
+        try (IncrementBenchmark benchmark = new IncrementBenchmark()) {
+            for (CriticalSectionType type : CriticalSectionType.values()) {
+                CriticalSection cs = type.newCriticalSection(numWorkers);
+                if (cs == null) {
+                    continue;   // COUNTER is covered by the lock tests
+                }
+                benchmark.runIncrementBenchmark(numWorkers, increments,
+                    new TournamentLock(numWorkers, RegisterLayout.PACKED,
+                        new YieldWaitStrategy()), cs);
+                assertNull(type + ": ", cs.check());
+            }
+        }
+    }
+
+    /** Test that the workloads detect broken invariants
+     */
+    @Test
+    public void testChecks() {
+        AccountsCriticalSection accounts = new AccountsCriticalSection(1, 4);
+        for (int i=0; i<1000; i++) {
+            accounts.run(0, true);
+        }
+        assertNull("Accounts: ", accounts.check());
+
+        RingBufferCriticalSection ring = new RingBufferCriticalSection(4);
+        for (int i=0; i<10; i++) {
+            ring.run(0, true);  // Enqueues past capacity are skipped
+        }
+        for (int i=0; i<10; i++) {
+            ring.run(1, false); // Dequeues from empty are skipped
+        }
+        assertNull("Ring buffer: ", ring.check());
+
+        HashMapCriticalSection map = new HashMapCriticalSection(2, 16);
+        for (int i=0; i<1000; i++) {
+            map.run(i % 2, (i % 2) == 0);
+        }
+        assertNull("Hash map: ", map.check());
+
+        StrideCriticalSection stride = new StrideCriticalSection(4, 3);
+        for (int i=0; i<10; i++) {
+            stride.run(0, true);
+        }
+        assertNull("Stride: ", stride.check());
+    }
+}
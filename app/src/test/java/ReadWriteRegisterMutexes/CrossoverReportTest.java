@@ -0,0 +1,54 @@
+/** CrossoverReport tests
+ */
+package ReadWriteRegisterMutexes;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class CrossoverReportTest {
+    /** Test that the crossover is where the lock starts beating the baseline
+     *  for good
+     */
+    @Test
+    public void testCrossover() {
+        assertEquals("Always faster: ", 0,
+            CrossoverReport.crossover(new double[] {1.5, 2.0, 3.0}));
+        assertEquals("Never faster: ", -1,
+            CrossoverReport.crossover(new double[] {0.5, 0.8, 0.9}));
+        assertEquals("Faster from index 1: ", 1,
+            CrossoverReport.crossover(new double[] {0.5, 1.2, 1.5}));
+        assertEquals("Faster for good from index 2: ", 2,
+            CrossoverReport.crossover(new double[] {1.1, 0.9, 1.5}));
+        assertEquals("Slower at the end: ", -1,
+            CrossoverReport.crossover(new double[] {1.1, 1.2, 0.9}));
+        assertEquals("Not measured: ", -1,
+            CrossoverReport.crossover(new double[] {1.1, Double.NaN}));
+    }
+
+    /** Test that the report compares every lock with the baseline
+     */
+    @Test
+    public void testReport() {
+        Map<String, Double> scores = new HashMap<>();
+        for (CrossoverReport.Contention contention
+                : CrossoverReport.Contention.values()) {
+            for (String cs : CrossoverReport.CS_TOKENS) {
+                for (String think : CrossoverReport.THINK_TOKENS) {
+                    scores.put(CrossoverReport.key(contention,
+                        CrossoverReport.BASELINE, cs, think), 100.0);
+                    scores.put(CrossoverReport.key(contention, "TOURNAMENT",
+                        cs, think), think.equals("0") ? 50.0 : 200.0);
+                }
+            }
+        }
+        String report = CrossoverReport.report(scores);
+        assertTrue("Tournament ratio: ", report.contains("2.00*"));
+        assertTrue("Tournament crossover: ",
+            report.contains("TOURNAMENT    LOW cs=0     think>=100"));
+        assertTrue("Unmeasured locks: ",
+            report.contains("ADAPTIVE    LOW cs=0     never"));
+    }
+}
@@ -0,0 +1,54 @@
+/** Fairness tests
+ */
+package ReadWriteRegisterMutexes;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class FairnessTest {
+    /** Test Jain's fairness index of even, uneven and starved threads
+     */
+    @Test
+    public void testJainIndex() {
+        assertEquals("Even: ", 1.0,
+            Fairness.jainIndex(new long[] {100, 100, 100, 100}), 1e-9);
+        assertEquals("One thread: ", 0.25,
+            Fairness.jainIndex(new long[] {400, 0, 0, 0}), 1e-9);
+        assertEquals("Uneven: ", 0.9,
+            Fairness.jainIndex(new long[] {100, 200, 100, 200}), 1e-9);
+        assertEquals("No acquisitions: ", 1.0,
+            Fairness.jainIndex(new long[] {0, 0}), 1e-9);
+    }
+
+    /** Test the min/max ratio of even, uneven and starved threads
+     */
+    @Test
+    public void testMinMaxRatio() {
+        assertEquals("Even: ", 1.0,
+            Fairness.minMaxRatio(new long[] {100, 100}), 1e-9);
+        assertEquals("Uneven: ", 0.5,
+            Fairness.minMaxRatio(new long[] {100, 200, 150}), 1e-9);
+        assertEquals("Starved: ", 0.0,
+            Fairness.minMaxRatio(new long[] {0, 200}), 1e-9);
+    }
+
+    /** Test that the report lists a thread that never acquired the lock
+     */
+    @Test
+    public void testReportStarved() {
+        String report = Fairness.report("TEST", new long[] {100, 0, 50},
+            new long[] {2000, 1000000, 3000});
+        String[] lines = report.split(System.lineSeparator());
+        assertEquals("Lines: ", 4, lines.length);
+        assertTrue("Header: " + lines[0],
+            lines[0].endsWith(" maxGap=1000000 ns starved=T1"));
+        assertEquals("Starved thread: ",
+            "  T1: acquisitions=0 maxGap=1000000 ns STARVED", lines[2]);
+        assertEquals("Other thread: ",
+            "  T2: acquisitions=50 maxGap=3000 ns", lines[3]);
+
+        report = Fairness.report("TEST", new long[] {100, 100},
+            new long[] {2000, 3000});
+        assertFalse("No starved threads: ", report.contains("starved"));
+    }
+}
@@ -0,0 +1,68 @@
+/** FastPathLock tests
+ */
+package ReadWriteRegisterMutexes.FastPath;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import ReadWriteRegisterMutexes.IncrementBenchmark;
+import ReadWriteRegisterMutexes.Lock;
+import ReadWriteRegisterMutexes.MemoryOrdering;
+import ReadWriteRegisterMutexes.RegisterLayout;
+import ReadWriteRegisterMutexes.YieldWaitStrategy;
+import ReadWriteRegisterMutexes.OneBit.OneBitLock;
+
+public class FastPathLockTest {
+    /** Test the FastPathLock by incrementing the c shared variable 1,000,000
+     * times while concurrently decrementing it another 1,000,000 times. There
+     * is no guarantee of the atomicity of the increments or decrements except
+     * if the lock works.
+     */
+    @Test
+    public void testFastPathLockIncrement() {
+        int numWorkers = 8;
+        try (IncrementBenchmark benchmark = new IncrementBenchmark()) {
+            assertEquals("Synchronization error: ", 0,
+                benchmark.runIncrementBenchmark(numWorkers, 1000000,
+                    new FastPathLock(numWorkers)));
+        }
+    }
+
+    /** Test the FastPathLock with a OneBitLock fallback
+     */
+    @Test
+    public void testFastPathLockOneBitFallback() {
+        int numWorkers = 4;
+        FastPathLock lock = new FastPathLock(numWorkers, RegisterLayout.PADDED,
+            new YieldWaitStrategy(), MemoryOrdering.SEQUENTIAL,
+            new OneBitLock(numWorkers, RegisterLayout.PADDED,
+                new YieldWaitStrategy()));
+        try (IncrementBenchmark benchmark = new IncrementBenchmark()) {
+            assertEquals("Synchronization error: ", 0,
+                benchmark.runIncrementBenchmark(numWorkers, 1000000, lock));
+        }
+    }
+
+    /** Test that a single thread never takes the fallback lock
+     */
+    @Test
+    public void testNoContention() {
+        Lock fallback = new Lock() {
+            public void lock(int tid) {
+                fail("Fallback lock acquired without contention");
+            }
+
+            public void unlock(int tid) {
+                fail("Fallback lock released without contention");
+            }
+        };
+        FastPathLock lock = new FastPathLock(4, RegisterLayout.PACKED,
+            new YieldWaitStrategy(), MemoryOrdering.SEQUENTIAL, fallback);
+        for (int tid=0; tid<4; tid++) {
+            for (int i=0; i<1000; i++) {
+                lock.lock(tid);
+                lock.unlock(tid);
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/** JfrLock and lock JFR event tests
+ */
+package ReadWriteRegisterMutexes;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import ReadWriteRegisterMutexes.Adaptive.AdaptiveLock;
+import ReadWriteRegisterMutexes.Tournament.TournamentLock;
+
+public class JfrLockTest {
+    /** Test that a JfrLock with 0 thresholds emits contended acquire and long
+     * hold events while recording, and that AdaptiveLock emits a single level
+     * overflow event when it goes past maxSplitters.
+     */
+    @Test
+    public void testEvents() throws Exception {
+        int numWorkers = 2;
+        int increments = 1000;
+        JfrLock lock = new JfrLock("test", new TournamentLock(numWorkers,
+            RegisterLayout.PACKED, new YieldWaitStrategy()), numWorkers, 0, 0);
+        AdaptiveLock adaptive = new AdaptiveLock(1, 2);
+        Path file = Files.createTempFile("JfrLockTest", ".jfr");
+
+        try (Recording recording = new Recording()) {
+            recording.enable(ContendedAcquireEvent.class);
+            recording.enable(LongHoldEvent.class);
+            recording.enable("ReadWriteRegisterMutexes.AdaptiveLevelOverflow");
+            recording.start();
+
+            Thread[] threads = new Thread[numWorkers];
+            for (int i=0; i<numWorkers; i++) {
+                threads[i] = new Thread(new Worker(i, (((i%2) == 0) ? true
+                    : false), increments, lock), "T" + i);
+                threads[i].start();
+            }
+            for (int i=0; i<numWorkers; i++) {
+                threads[i].join();
+            }
+
+            // Every acquisition moves next one level further
+            for (int i=0; i<3; i++) {
+                adaptive.lock(0);
+                adaptive.unlock(0);
+            }
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        int contended = 0, hold = 0, overflow = 0;
+        for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+            switch (event.getEventType().getName()) {
+                case "ReadWriteRegisterMutexes.ContendedAcquire":
+                    assertEquals("Lock name: ", "test", event.getString("lock"));
+                    contended++;
+                    break;
+                case "ReadWriteRegisterMutexes.LongHold":
+                    hold++;
+                    break;
+                case "ReadWriteRegisterMutexes.AdaptiveLevelOverflow":
+                    overflow++;
+                    break;
+                default:
+                    break;
+            }
+        }
+        Files.delete(file);
+
+        assertEquals("Contended acquire events: ", numWorkers * increments,
+            contended);
+        assertEquals("Long hold events: ", numWorkers * increments, hold);
+        assertEquals("Level overflow events: ", 1, overflow);
+    }
+}
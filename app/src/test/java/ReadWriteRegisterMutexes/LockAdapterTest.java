@@ -0,0 +1,261 @@
+/** LockAdapter and ThreadIdRegistry tests
+ */
+package ReadWriteRegisterMutexes;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+
+import ReadWriteRegisterMutexes.Tournament.TournamentLock;
+
+public class LockAdapterTest {
+    /** Shared counter incremented by the pool threads
+     */
+    private int c;
+
+    /** Test that the registry gives dense IDs, and recycles the ID of a thread
+     * that terminated.
+     */
+    @Test
+    public void testThreadIdRegistryRecycling() throws Exception {
+        ThreadIdRegistry registry = new ThreadIdRegistry(2);
+        int[] ids = new int[2];
+
+        // The current thread gets the first ID, and keeps it
+        assertEquals("First ID: ", 0, registry.get());
+        assertEquals("Same thread, same ID: ", 0, registry.get());
+
+        // A second thread gets the next ID, and frees it when it terminates
+        Thread t1 = new Thread(() -> ids[0] = registry.get(), "T1");
+        t1.start();
+        t1.join();
+        assertEquals("Second ID: ", 1, ids[0]);
+
+        // A third thread reuses the ID of the terminated thread
+        Thread t2 = new Thread(() -> ids[1] = registry.get(), "T2");
+        t2.start();
+        t2.join();
+        assertEquals("Recycled ID: ", 1, ids[1]);
+
+        // A released ID is the lowest free one again
+        registry.release();
+        assertEquals("ID after release: ", 0, registry.get());
+    }
+
+    /** Test the LockAdapter by incrementing a shared counter from a thread
+     * pool, where tasks do not know which thread runs them. Waiters yield, so
+     * the test does not depend on having a core per pool thread.
+     */
+    @Test
+    @SuppressWarnings("try")    // The guard is only there to be closed
+    public void testLockAdapterIncrement() throws Exception {
+        int numThreads = 4;
+        int numTasks = 16;
+        int increments = 100000;
+        LockAdapter lock = new LockAdapter(new TournamentLock(numThreads,
+            RegisterLayout.PACKED, new YieldWaitStrategy()), numThreads);
+        ExecutorService pool = Executors.newFixedThreadPool(numThreads);
+        Future<?>[] tasks = new Future<?>[numTasks];
+
+        this.c = 0;
+        for (int i=0; i<numTasks; i++) {
+            tasks[i] = pool.submit(() -> {
+                for (int j=0; j<increments; j++) {
+                    try (LockAdapter.Guard ignored = lock.acquire()) {
+                        this.c++;
+                    }
+                }
+            });
+        }
+
+        for (int i=0; i<numTasks; i++) {
+            tasks[i].get();
+        }
+        pool.shutdown();
+        assertTrue("Pool did not terminate",
+            pool.awaitTermination(1, TimeUnit.MINUTES));
+
+        // Check we got the right result
+        assertEquals("Synchronization error: ", numTasks * increments, this.c);
+    }
+
+    /** Test that unlock fails, without touching the lock, in a thread that
+     * does not hold it
+     */
+    @Test
+    public void testUnlockNotHeld() throws Exception {
+        int[] unlocks = new int[1];
+        Lock counting = new Lock() {
+            public void lock(int tid) {
+            }
+
+            public void unlock(int tid) {
+                unlocks[0]++;
+            }
+        };
+        ThreadIdRegistry registry = new ThreadIdRegistry(2);
+        LockAdapter lock = new LockAdapter(counting, registry);
+
+        // A thread that never locked has no ID, and does not get one
+        try {
+            lock.unlock();
+            fail("Unlock without an ID accepted");
+        } catch (IllegalMonitorStateException e) {
+            // Expected
+        }
+        assertEquals("ID claimed by unlock: ", -1, registry.find());
+
+        // A thread with an ID that does not hold the lock
+        boolean[] rejected = new boolean[1];
+        lock.lock();
+        Thread t = new Thread(() -> {
+            registry.get();
+            try {
+                lock.unlock();
+            } catch (IllegalMonitorStateException e) {
+                rejected[0] = true;
+            }
+        }, "T1");
+        t.start();
+        t.join();
+        assertTrue("Unlock by another thread accepted", rejected[0]);
+        lock.unlock();
+        assertEquals("Unlocks passed to the lock: ", 1, unlocks[0]);
+
+        // Unlocking twice
+        try {
+            lock.unlock();
+            fail("Second unlock accepted");
+        } catch (IllegalMonitorStateException e) {
+            // Expected
+        }
+        assertEquals("Unlocks passed to the lock: ", 1, unlocks[0]);
+    }
+
+    /** Test that tryLock only takes a lock no other thread holds
+     */
+    @Test
+    public void testTryLock() throws Exception {
+        LockAdapter lock = new LockAdapter(new TournamentLock(2,
+            RegisterLayout.PACKED, new YieldWaitStrategy()), 2);
+        boolean[] acquired = new boolean[3];
+
+        assertTrue("Free lock not acquired", lock.tryLock());
+        Thread t1 = new Thread(() -> {
+            acquired[0] = lock.tryLock();
+            try {
+                acquired[1] = lock.tryLock(10, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                acquired[1] = true;
+            }
+        }, "T1");
+        t1.start();
+        t1.join();
+        assertFalse("Held lock acquired", acquired[0]);
+        assertFalse("Held lock acquired with a timeout", acquired[1]);
+        lock.unlock();
+
+        Thread t2 = new Thread(() -> {
+            try {
+                acquired[2] = lock.tryLock(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (acquired[2]) {
+                lock.unlock();
+            }
+        }, "T2");
+        t2.start();
+        t2.join();
+        assertTrue("Released lock not acquired", acquired[2]);
+    }
+
+    /** Test that a condition releases the lock while waiting, wakes up on a
+     * signal, and holds the lock again when it returns
+     */
+    @Test
+    public void testCondition() throws Exception {
+        LockAdapter lock = new LockAdapter(new TournamentLock(2,
+            RegisterLayout.PACKED, new YieldWaitStrategy()), 2);
+        Condition ready = lock.newCondition();
+        boolean[] flag = new boolean[1];
+        boolean[] woken = new boolean[1];
+
+        Thread t1 = new Thread(() -> {
+            lock.lock();
+            try {
+                while (!flag[0]) {
+                    ready.awaitUninterruptibly();
+                }
+                woken[0] = true;
+            } finally {
+                lock.unlock();
+            }
+        }, "T1");
+        t1.start();
+
+        // The waiter released the lock, so we can take it and signal
+        while (t1.getState() != Thread.State.WAITING) {
+            Thread.yield();
+        }
+        lock.lock();
+        flag[0] = true;
+        ready.signal();
+        lock.unlock();
+        t1.join(10000);
+        assertTrue("Waiter not woken up", woken[0]);
+
+        // A timed wait without a signal times out holding the lock
+        lock.lock();
+        assertTrue("Timed wait not timed out",
+            ready.awaitNanos(TimeUnit.MILLISECONDS.toNanos(10)) <= 0);
+        assertFalse("Timed wait not timed out",
+            ready.await(10, TimeUnit.MILLISECONDS));
+        lock.unlock();
+
+        // Signals need the lock
+        try {
+            ready.signal();
+            fail("Signal without the lock accepted");
+        } catch (IllegalMonitorStateException e) {
+            // Expected
+        }
+    }
+
+    /** Test that an interrupted wait throws holding the lock
+     */
+    @Test
+    public void testConditionInterrupt() throws Exception {
+        LockAdapter lock = new LockAdapter(new TournamentLock(2,
+            RegisterLayout.PACKED, new YieldWaitStrategy()), 2);
+        Condition never = lock.newCondition();
+        boolean[] interrupted = new boolean[1];
+
+        Thread t1 = new Thread(() -> {
+            lock.lock();
+            try {
+                never.await();
+            } catch (InterruptedException e) {
+                interrupted[0] = true;
+            } finally {
+                lock.unlock();
+            }
+        }, "T1");
+        t1.start();
+        while (t1.getState() != Thread.State.WAITING) {
+            Thread.yield();
+        }
+        t1.interrupt();
+        t1.join(10000);
+        assertTrue("Wait not interrupted", interrupted[0]);
+
+        // The waiter released the lock on its way out
+        assertTrue("Lock not released", lock.tryLock());
+        lock.unlock();
+    }
+}
@@ -0,0 +1,59 @@
+/** LockFactory tests
+ */
+package ReadWriteRegisterMutexes;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class LockFactoryTest {
+    /** Test every registered lock with the padded register layout
+     */
+    @Test
+    public void testPaddedLayout() {
+        runIncrements(new LockFactory.Options()
+            .setLayout(RegisterLayout.PADDED)
+            .setWaitStrategy(WaitStrategyType.YIELD), 20000);
+    }
+
+    /** Test every registered lock with the yield and park wait strategies
+     */
+    @Test
+    public void testWaitStrategies() {
+        runIncrements(new LockFactory.Options()
+            .setWaitStrategy(WaitStrategyType.YIELD), 20000);
+        runIncrements(new LockFactory.Options()
+            .setWaitStrategy(WaitStrategyType.PARK), 20000);
+    }
+
+    /** Test every registered lock with release/acquire memory ordering
+     */
+    @Test
+    public void testReleaseAcquire() {
+        runIncrements(new LockFactory.Options()
+            .setWaitStrategy(WaitStrategyType.YIELD)
+            .setOrdering(MemoryOrdering.RELEASE_ACQUIRE), 20000);
+    }
+
+    /** Increment and decrement the shared counter with every registered
+     *  read-write register lock
+     * 
+     * @param options       Lock options, the number of threads is set here
+     * @param increments    Number of increments or decrements per thread
+     */
+    private static void runIncrements(LockFactory.Options options,
+            int increments) {
+        int numWorkers = 4;
+        options.setNumThreads(numWorkers);
+        try (IncrementBenchmark benchmark = new IncrementBenchmark()) {
+            for (String lockType : LockFactory.names()) {
+                Object lock = LockFactory.newLock(lockType, options);
+                if (!(lock instanceof Lock)) {
+                    continue;   // Only the read-write register locks
+                }
+                assertEquals(lockType + ": Synchronization error: ", 0,
+                    benchmark.runIncrementBenchmark(numWorkers, increments,
+                        lock));
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+/** ParkWaitStrategy tests
+ */
+package ReadWriteRegisterMutexes;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class ParkWaitStrategyTest {
+    /** Test that park durations up to Long.MAX_VALUE are accepted
+     */
+    @Test(timeout=1000)
+    public void testLargeMaxPark() {
+        new ParkWaitStrategy(0, 1L, Long.MAX_VALUE);
+        new ParkWaitStrategy(0, 3L, Long.MAX_VALUE);
+        new ParkWaitStrategy(0, Long.MAX_VALUE, Long.MAX_VALUE);
+    }
+
+    /** Test that parks grow until they reach maxParkNanos
+     */
+    @Test(timeout=10000)
+    public void testBackoff() {
+        ParkWaitStrategy strategy = new ParkWaitStrategy(2, 1000L, 1000000L);
+        int iteration = 0;
+        for (int i=0; i<20; i++) {
+            iteration = strategy.idle(iteration);
+        }
+        // 2 spins and 10 doublings, after which it stops counting
+        assertEquals("Iterations: ", 12, iteration);
+    }
+
+    /** Test that invalid park durations are rejected
+     */
+    @Test
+    public void testInvalidPark() {
+        try {
+            new ParkWaitStrategy(0, 0L, 1000L);
+            fail("minParkNanos of 0 accepted");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+        try {
+            new ParkWaitStrategy(0, 1000L, 10L);
+            fail("maxParkNanos below minParkNanos accepted");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+}
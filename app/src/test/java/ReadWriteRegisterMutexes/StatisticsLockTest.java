@@ -0,0 +1,91 @@
+/** StatisticsLock tests
+ */
+package ReadWriteRegisterMutexes;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import ReadWriteRegisterMutexes.Tournament.TournamentLock;
+
+public class StatisticsLockTest {
+    /** Test that times fall in power of 2 buckets
+     */
+    @Test
+    public void testBuckets() {
+        assertEquals("Bucket of 0: ", 0, StatisticsLock.bucket(0));
+        assertEquals("Bucket of 1: ", 1, StatisticsLock.bucket(1));
+        assertEquals("Bucket of 2: ", 2, StatisticsLock.bucket(2));
+        assertEquals("Bucket of 3: ", 2, StatisticsLock.bucket(3));
+        assertEquals("Bucket of 1024: ", 11, StatisticsLock.bucket(1024));
+        assertEquals("Bucket of max: ", StatisticsLock.BUCKETS - 1,
+            StatisticsLock.bucket(Long.MAX_VALUE));
+    }
+
+    /** Test the StatisticsLock by incrementing the c shared variable through
+     * a decorated TournamentLock, and checking the acquisitions and
+     * percentiles it recorded.
+     */
+    @Test
+    public void testStatisticsLockIncrement() {
+        int numWorkers = 4;
+        int increments = 100000;
+        StatisticsLock lock = new StatisticsLock(new TournamentLock(numWorkers,
+            RegisterLayout.PACKED, new YieldWaitStrategy()), numWorkers);
+        Thread[] threads = new Thread[numWorkers];
+
+        // Initialize the shared counter c
+        Worker worker = new Worker(0, true, increments, lock);
+        worker.setC(0);
+
+        // Even workers add, odd workers subtract
+        for (int i=0; i<numWorkers; i++) {
+            threads[i] = new Thread(new Worker(i, (((i%2) == 0) ? true : false),
+                increments, lock), "T" + i);
+        }
+        for (int i=0; i<numWorkers; i++) {
+            threads[i].start();
+        }
+        for (int i=0; i<numWorkers; i++) {
+            try {
+                threads[i].join();
+            } catch (InterruptedException e) {
+                assertTrue("Exception caught for T" + i + ": " + e, false);
+            }
+        }
+        assertEquals("Synchronization error: ", 0, worker.getC());
+
+        // Every acquisition was recorded, by the thread that made it
+        StatisticsLock.Snapshot snapshot = lock.snapshot();
+        assertEquals("Acquisitions: ", numWorkers * increments,
+            snapshot.getAcquisitions());
+        for (int i=0; i<numWorkers; i++) {
+            assertEquals("Acquisitions of T" + i + ": ", increments,
+                lock.snapshot(i).getAcquisitions());
+        }
+
+        // Percentiles are ordered and bounded by the maximum
+        assertTrue("Wait p50 <= p99", snapshot.getWaitPercentile(50.0)
+            <= snapshot.getWaitPercentile(99.0));
+        assertTrue("Wait p99 <= p99.9", snapshot.getWaitPercentile(99.0)
+            <= snapshot.getWaitPercentile(99.9));
+        assertTrue("Wait p99.9 <= max", snapshot.getWaitPercentile(99.9)
+            <= snapshot.getWaitMax());
+        assertTrue("Hold p99.9 <= max", snapshot.getHoldPercentile(99.9)
+            <= snapshot.getHoldMax());
+
+        // The report has the merged statistics, then a line per thread
+        String[] lines = lock.report().split(System.lineSeparator());
+        assertEquals("Report lines: ", numWorkers + 1, lines.length);
+        assertTrue("Report header: " + lines[0], lines[0].startsWith(
+            "TournamentLock: acquisitions=" + (numWorkers * increments) + " "));
+        for (int i=0; i<numWorkers; i++) {
+            assertTrue("Report line of T" + i + ": " + lines[i + 1],
+                lines[i + 1].startsWith("  T" + i + ": acquisitions="
+                    + increments + " "));
+        }
+
+        lock.reset();
+        assertEquals("Acquisitions after reset: ", 0,
+            lock.snapshot().getAcquisitions());
+    }
+}